@@ -0,0 +1,75 @@
+import com.google.gson.JsonElement;
+import com.maxmind.db.Reader;
+import com.maxmind.db.Reader.FileMode;
+import com.maxmind.db.cache.CHMCache;
+import com.maxmind.db.cache.NoCache;
+import com.maxmind.db.cache.NodeCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.Random;
+
+/**
+ * Reports the number of bytes allocated per lookup. This relies on the
+ * HotSpot specific <code>com.sun.management.ThreadMXBean</code>.
+ */
+public class AllocationBenchmark {
+
+    private final static int COUNT = 1000000;
+    private final static int WARMUPS = 3;
+    private final static int BENCHMARKS = 5;
+
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0] : "GeoLite2-City.mmdb");
+        System.out.println("No caching");
+        loop("Warming up", file, WARMUPS, NoCache.getInstance());
+        loop("Benchmarking", file, BENCHMARKS, NoCache.getInstance());
+
+        System.out.println("With caching");
+        loop("Warming up", file, WARMUPS, new CHMCache());
+        loop("Benchmarking", file, BENCHMARKS, new CHMCache());
+    }
+
+    private static void loop(String msg, File file, int loops, NodeCache cache) throws IOException {
+        System.out.println(msg);
+        for (int i = 0; i < loops; i++) {
+            Reader r = new Reader(file, FileMode.MEMORY_MAPPED, cache);
+            bench(r, COUNT, i);
+        }
+        System.out.println();
+    }
+
+    private static void bench(Reader r, int count, int seed) throws IOException {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Create the addresses up front so that they are not counted.
+        Random random = new Random(seed);
+        InetAddress[] addresses = new InetAddress[count];
+        byte[] address = new byte[4];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(address);
+            addresses[i] = InetAddress.getByAddress(address);
+        }
+
+        int found = 0;
+        long startBytes = bean.getThreadAllocatedBytes(threadId);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            JsonElement t = r.get(addresses[i]);
+            if (t != null) {
+                found++;
+            }
+        }
+        long endTime = System.nanoTime();
+        long endBytes = bean.getThreadAllocatedBytes(threadId);
+
+        long qps = count * 1000000000L / (endTime - startTime);
+        System.out.println("Requests per second: " + qps
+                + ", bytes allocated per lookup: " + (endBytes - startBytes) / count
+                + " (" + found + " found)");
+    }
+}
@@ -0,0 +1,85 @@
+import com.maxmind.db.Reader;
+import com.maxmind.db.Reader.FileMode;
+import com.maxmind.db.cache.BoundedCache;
+import com.maxmind.db.cache.CHMCache;
+import com.maxmind.db.cache.NodeCache;
+import com.maxmind.db.cache.TieredCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reports the lookup throughput of one shared reader with 1, 2, 4, ... up to
+ * the given number of threads, for several caches.
+ */
+public class ScalingBenchmark {
+
+    private final static int COUNT_PER_THREAD = 200000;
+    private final static int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        File file = new File(args.length > 0 ? args[0] : "GeoLite2-City.mmdb");
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            System.out.println(threads + " threads");
+            bench("CHMCache", file, threads, new CHMCache());
+            bench("BoundedCache", file, threads, new BoundedCache());
+            bench("TieredCache(BoundedCache)", file, threads,
+                    new TieredCache(new BoundedCache()));
+            System.out.println();
+        }
+    }
+
+    private static void bench(String name, File file, int threads, NodeCache cache)
+            throws Exception {
+        final Reader reader = new Reader(file, FileMode.MEMORY_MAPPED, cache);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long best = 0;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                List<Callable<Integer>> tasks = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final int seed = round * threads + t;
+                    tasks.add(new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws IOException {
+                            return lookUp(reader, seed);
+                        }
+                    });
+                }
+                long startTime = System.nanoTime();
+                for (Future<Integer> result : executor.invokeAll(tasks)) {
+                    result.get();
+                }
+                long duration = System.nanoTime() - startTime;
+                best = Math.max(best, threads * COUNT_PER_THREAD * 1000000000L / duration);
+            }
+        } finally {
+            executor.shutdown();
+            reader.close();
+        }
+        System.out.println(name + ": " + best + " requests per second");
+    }
+
+    private static int lookUp(Reader reader, int seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] address = new byte[4];
+        int found = 0;
+        for (int i = 0; i < COUNT_PER_THREAD; i++) {
+            random.nextBytes(address);
+            if (reader.get(InetAddress.getByAddress(address)) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,339 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonElement;
+import com.maxmind.db.model.AsnResponse;
+import com.maxmind.db.model.CityResponse;
+import com.maxmind.db.model.CountryResponse;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Looks up addresses in a {@link Reader} without blocking the calling
+ * thread, for applications that do their work on event loops. Each lookup
+ * returns a {@link LookupFuture}, which is completed on an executor.
+ * </p>
+ * <pre>
+ * AsyncReader async = new AsyncReader(reader);
+ * async.getCountry(address).addCallback(new LookupCallback&lt;CountryResponse&gt;() {
+ *     &#64;Override
+ *     public void onSuccess(CountryResponse response) {
+ *         // ...
+ *     }
+ *
+ *     &#64;Override
+ *     public void onFailure(Throwable failure) {
+ *         // ...
+ *     }
+ * });
+ * </pre>
+ * <p>
+ * Lookups search the tree of the database on the calling thread, which
+ * takes no decoding. If the result is known from the search alone, because
+ * there is no data for the address, the record is in the cache of the
+ * reader, or the reader prebuilt the country of the record, the future is
+ * completed right away and the lookup never leaves the calling thread. Only
+ * lookups that need to decode data are handed to the executor. With
+ * {@link Reader.FileMode#MEMORY_MAPPED}, the search can still wait for the
+ * operating system to page in the tree; use {@link Reader.FileMode#MEMORY}
+ * if the calling thread must never wait on I/O.
+ * </p>
+ * <p>
+ * The default executor is shared by all instances. It starts a virtual
+ * thread for each lookup on a JVM that has them. Otherwise it uses a pool
+ * of as many daemon threads as there are processors, with room for 1024
+ * lookups per thread to wait; a lookup that finds the pool full fails with a
+ * {@link java.util.concurrent.RejectedExecutionException}. Closing the
+ * reader fails the lookups that have not finished yet with a
+ * {@link ClosedDatabaseException}.
+ * </p>
+ */
+public final class AsyncReader {
+
+    private final Reader reader;
+    private final Executor executor;
+
+    /**
+     * Constructs an AsyncReader that decodes on the default executor.
+     *
+     * @param reader the reader to look addresses up in.
+     */
+    public AsyncReader(Reader reader) {
+        this(reader, DefaultExecutor.INSTANCE);
+    }
+
+    /**
+     * Constructs an AsyncReader that decodes on the given executor.
+     *
+     * @param reader   the reader to look addresses up in.
+     * @param executor the executor to decode on, such as the one returned by
+     *                 {@link #newVirtualThreadExecutor()}.
+     */
+    public AsyncReader(Reader reader, Executor executor) {
+        if (reader == null) {
+            throw new NullPointerException("Reader cannot be null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("Executor cannot be null");
+        }
+        this.reader = reader;
+        this.executor = executor;
+    }
+
+    /**
+     * @return an executor that starts a new virtual thread for each task.
+     * @throws UnsupportedOperationException if this JVM has no virtual
+     *                                       threads.
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        // Looked up reflectively, as this library is built for Java 7
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Either the method does not exist, or it is a preview feature
+            // that is not enabled
+            throw new UnsupportedOperationException(
+                    "Virtual threads are not available on this JVM", e);
+        }
+    }
+
+    /**
+     * @return the reader that addresses are looked up in.
+     */
+    public Reader getReader() {
+        return this.reader;
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> in the MaxMind DB.
+     *
+     * @param ipAddress the IP address to look up.
+     * @return the record data for the IP address, or <code>null</code> if
+     * there is no data for the address, once it is known.
+     * @see Reader#get(InetAddress)
+     */
+    public LookupFuture<JsonElement> get(InetAddress ipAddress) {
+        return this.lookUp(new Lookup<JsonElement>(ipAddress) {
+            @Override
+            boolean answerWithoutDecoding() throws IOException {
+                Record record = reader.getCachedRecord(this.ipAddress, this.result);
+                return record != null && this.future.complete(record.getData());
+            }
+
+            @Override
+            JsonElement decode() throws IOException {
+                return reader.getRecord(this.ipAddress, this.result).getData();
+            }
+        });
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> in the MaxMind DB.
+     *
+     * @param ipAddress the IP address to look up.
+     * @return the record for the IP address, once it is known.
+     * @see Reader#getRecord(InetAddress)
+     */
+    public LookupFuture<Record> getRecord(InetAddress ipAddress) {
+        return this.lookUp(new Lookup<Record>(ipAddress) {
+            @Override
+            boolean answerWithoutDecoding() throws IOException {
+                Record record = reader.getCachedRecord(this.ipAddress, this.result);
+                return record != null && this.future.complete(record);
+            }
+
+            @Override
+            Record decode() throws IOException {
+                return reader.getRecord(this.ipAddress, this.result);
+            }
+        });
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> and decodes its country and continent.
+     *
+     * @param ipAddress IPv4 or IPv6 address to lookup.
+     * @return A Country model for the requested IP address, or
+     * <code>null</code> if there is no data for the address, once it is
+     * known.
+     * @see Reader#getCountry(InetAddress)
+     */
+    public LookupFuture<CountryResponse> getCountry(InetAddress ipAddress) {
+        return this.lookUp(new Lookup<CountryResponse>(ipAddress) {
+            @Override
+            boolean answerWithoutDecoding() {
+                if (this.hasNoData()) {
+                    return this.future.complete(null);
+                }
+                CountryResponse response = reader.getPrebuiltCountry(this.result);
+                return response != null && this.future.complete(response);
+            }
+
+            @Override
+            CountryResponse decode() throws IOException {
+                return reader.getCountry(this.result);
+            }
+        });
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> and decodes its city, continent,
+     * country, location, postal code and subdivisions.
+     *
+     * @param ipAddress IPv4 or IPv6 address to lookup.
+     * @return A City model for the requested IP address, or
+     * <code>null</code> if there is no data for the address, once it is
+     * known.
+     * @see Reader#getCity(InetAddress)
+     */
+    public LookupFuture<CityResponse> getCity(InetAddress ipAddress) {
+        return this.lookUp(new Lookup<CityResponse>(ipAddress) {
+            @Override
+            boolean answerWithoutDecoding() {
+                return this.hasNoData() && this.future.complete(null);
+            }
+
+            @Override
+            CityResponse decode() throws IOException {
+                return reader.getCity(this.result);
+            }
+        });
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> and decodes its autonomous system.
+     *
+     * @param ipAddress IPv4 or IPv6 address to lookup.
+     * @return An ASN model for the requested IP address, or
+     * <code>null</code> if there is no data for the address, once it is
+     * known.
+     * @see Reader#getAsn(InetAddress)
+     */
+    public LookupFuture<AsnResponse> getAsn(InetAddress ipAddress) {
+        return this.lookUp(new Lookup<AsnResponse>(ipAddress) {
+            @Override
+            boolean answerWithoutDecoding() {
+                return this.hasNoData() && this.future.complete(null);
+            }
+
+            @Override
+            AsnResponse decode() throws IOException {
+                return reader.getAsn(this.result);
+            }
+        });
+    }
+
+    private <T> LookupFuture<T> lookUp(Lookup<T> lookup) {
+        try {
+            lookup.result = this.reader.findRecord(lookup.ipAddress);
+            if (lookup.answerWithoutDecoding()) {
+                return lookup.future;
+            }
+        } catch (IOException | RuntimeException e) {
+            lookup.future.fail(e);
+            return lookup.future;
+        }
+
+        try {
+            this.executor.execute(lookup);
+        } catch (RejectedExecutionException e) {
+            lookup.future.fail(e);
+        }
+        return lookup.future;
+    }
+
+    /*
+     * A lookup whose tree search is done on the calling thread, and whose
+     * decoding, if any, is done on the executor.
+     */
+    private abstract static class Lookup<T> implements Runnable {
+        final LookupFuture<T> future = new LookupFuture<>();
+        final InetAddress ipAddress;
+        // The result of Reader.findRecord
+        long result;
+
+        Lookup(InetAddress ipAddress) {
+            this.ipAddress = ipAddress;
+        }
+
+        /*
+         * Completes the future and returns true if the result is known
+         * without decoding anything.
+         */
+        abstract boolean answerWithoutDecoding() throws IOException;
+
+        abstract T decode() throws IOException;
+
+        boolean hasNoData() {
+            return (int) this.result == Reader.NO_DATA;
+        }
+
+        @Override
+        public void run() {
+            if (this.future.isDone()) {
+                // Cancelled before it got to run
+                return;
+            }
+            T value;
+            try {
+                value = this.decode();
+            } catch (IOException | RuntimeException e) {
+                this.future.fail(e);
+                return;
+            }
+            this.future.complete(value);
+        }
+    }
+
+    // Created when the first instance that uses it is. EnrichmentStage
+    // shares it.
+    static final class DefaultExecutor {
+        static final Executor INSTANCE = DefaultExecutor.create();
+
+        // Tasks the pool holds per thread before it rejects more
+        private static final int QUEUED_PER_THREAD = 1024;
+
+        private static Executor create() {
+            try {
+                return AsyncReader.newVirtualThreadExecutor();
+            } catch (UnsupportedOperationException e) {
+                int threads = Runtime.getRuntime().availableProcessors();
+                return DefaultExecutor.newBoundedPool(threads, threads * QUEUED_PER_THREAD);
+            }
+        }
+
+        /*
+         * Returns a pool of at most the given number of daemon threads, which
+         * rejects tasks once the given number are waiting for a thread. Idle
+         * threads end after a minute.
+         */
+        static ThreadPoolExecutor newBoundedPool(int threads, int queueCapacity) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                    60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable task) {
+                            Thread thread = new Thread(task,
+                                    "maxmind-db-lookup-" + threadNumber.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
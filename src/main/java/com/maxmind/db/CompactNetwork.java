@@ -0,0 +1,295 @@
+package com.maxmind.db;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * <p>
+ * An IP network held as numbers: an IPv4 network as an <code>int</code>
+ * address and an IPv6 network as two <code>long</code>s, with the prefix
+ * length. Unlike {@link Network}, it creates no <code>InetAddress</code> or
+ * byte arrays, which makes it cheap to compare, to test for containment, and
+ * to use as a key in sets, maps and sorted collections.
+ * </p>
+ * <p>
+ * The address is always the first address of the network; the bits after
+ * the prefix are cleared when a network is created. Networks sort IPv4
+ * before IPv6, then by address, and then by prefix length, so that a
+ * network sorts right before the networks it contains. Instances are
+ * immutable.
+ * </p>
+ */
+public final class CompactNetwork implements Comparable<CompactNetwork> {
+
+    // An IPv4 address is held in the low 32 bits of low, and high is 0
+    private final long high;
+    private final long low;
+    private final int prefixLength;
+    private final boolean ipV4;
+
+    private CompactNetwork(long high, long low, int prefixLength, boolean ipV4) {
+        this.high = high;
+        this.low = low;
+        this.prefixLength = prefixLength;
+        this.ipV4 = ipV4;
+    }
+
+    /**
+     * @param address      an IPv4 address in the network, with its first
+     *                     byte in the most significant byte.
+     * @param prefixLength the prefix length of the network, from 0 to 32.
+     * @return the network.
+     */
+    public static CompactNetwork ofIpV4(int address, int prefixLength) {
+        CompactNetwork.checkPrefixLength(prefixLength, 32);
+        int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+        return new CompactNetwork(0, 0xFFFFFFFFL & (address & mask), prefixLength, true);
+    }
+
+    /**
+     * @param high         the first 64 bits of an IPv6 address in the
+     *                     network.
+     * @param low          the last 64 bits of the address.
+     * @param prefixLength the prefix length of the network, from 0 to 128.
+     * @return the network.
+     */
+    public static CompactNetwork ofIpV6(long high, long low, int prefixLength) {
+        CompactNetwork.checkPrefixLength(prefixLength, 128);
+        return new CompactNetwork(high & CompactNetwork.highMask(prefixLength),
+                low & CompactNetwork.lowMask(prefixLength), prefixLength, false);
+    }
+
+    /**
+     * @param address      an address in the network.
+     * @param prefixLength the prefix length of the network.
+     * @return the network.
+     */
+    public static CompactNetwork of(InetAddress address, int prefixLength) {
+        byte[] raw = address.getAddress();
+        if (raw.length == 4) {
+            return CompactNetwork.ofIpV4((int) CompactNetwork.bits(raw, 0, 4), prefixLength);
+        }
+        return CompactNetwork.ofIpV6(CompactNetwork.bits(raw, 0, 8),
+                CompactNetwork.bits(raw, 8, 8), prefixLength);
+    }
+
+    /**
+     * @return whether this is an IPv4 network.
+     */
+    public boolean isIpV4() {
+        return this.ipV4;
+    }
+
+    /**
+     * @return the prefix length of the network.
+     */
+    public int getPrefixLength() {
+        return this.prefixLength;
+    }
+
+    /**
+     * @return the first address of this IPv4 network.
+     * @throws IllegalStateException if this is an IPv6 network.
+     */
+    public int getIpV4Address() {
+        if (!this.ipV4) {
+            throw new IllegalStateException("Not an IPv4 network: " + this);
+        }
+        return (int) this.low;
+    }
+
+    /**
+     * @return the first 64 bits of the first address of the network, which
+     * are 0 for an IPv4 network.
+     */
+    public long getHigh() {
+        return this.high;
+    }
+
+    /**
+     * @return the last 64 bits of the first address of the network. For an
+     * IPv4 network, these are the address in the low 32 bits.
+     */
+    public long getLow() {
+        return this.low;
+    }
+
+    /**
+     * @return the first address of the network, as a network of one address.
+     */
+    public CompactNetwork first() {
+        return new CompactNetwork(this.high, this.low, this.bitLength(), this.ipV4);
+    }
+
+    /**
+     * @return the last address of the network, as a network of one address.
+     */
+    public CompactNetwork last() {
+        if (this.ipV4) {
+            int mask = this.prefixLength == 0 ? 0 : -1 << (32 - this.prefixLength);
+            return new CompactNetwork(0, 0xFFFFFFFFL & (this.low | ~mask), 32, true);
+        }
+        return new CompactNetwork(this.high | ~CompactNetwork.highMask(this.prefixLength),
+                this.low | ~CompactNetwork.lowMask(this.prefixLength), 128, false);
+    }
+
+    /**
+     * @param other a network.
+     * @return whether every address of the other network is in this one. A
+     * network contains itself, and IPv4 and IPv6 networks never contain each
+     * other.
+     */
+    public boolean contains(CompactNetwork other) {
+        return this.ipV4 == other.ipV4 && other.prefixLength >= this.prefixLength
+                && this.containsAddress(other.high, other.low);
+    }
+
+    /**
+     * @param address an address.
+     * @return whether the address is in this network.
+     */
+    public boolean contains(InetAddress address) {
+        byte[] raw = address.getAddress();
+        if (raw.length == 4) {
+            return this.ipV4 && this.containsAddress(0, CompactNetwork.bits(raw, 0, 4));
+        }
+        return !this.ipV4 && this.containsAddress(CompactNetwork.bits(raw, 0, 8),
+                CompactNetwork.bits(raw, 8, 8));
+    }
+
+    private boolean containsAddress(long high, long low) {
+        if (this.ipV4) {
+            int mask = this.prefixLength == 0 ? 0 : -1 << (32 - this.prefixLength);
+            return ((int) low & mask) == (int) this.low;
+        }
+        return (high & CompactNetwork.highMask(this.prefixLength)) == this.high
+                && (low & CompactNetwork.lowMask(this.prefixLength)) == this.low;
+    }
+
+    /**
+     * @return the first address of the network.
+     */
+    public InetAddress toInetAddress() {
+        byte[] raw = new byte[this.ipV4 ? 4 : 16];
+        if (this.ipV4) {
+            CompactNetwork.putBits(raw, 0, 4, this.low);
+        } else {
+            CompactNetwork.putBits(raw, 0, 8, this.high);
+            CompactNetwork.putBits(raw, 8, 8, this.low);
+        }
+        try {
+            return InetAddress.getByAddress(raw);
+        } catch (UnknownHostException e) {
+            // Only thrown for addresses of the wrong length
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the network as a {@link Network}.
+     */
+    public Network toNetwork() {
+        return new Network(this.toInetAddress(), this.prefixLength);
+    }
+
+    @Override
+    public int compareTo(CompactNetwork other) {
+        if (this.ipV4 != other.ipV4) {
+            return this.ipV4 ? -1 : 1;
+        }
+        int compared = Long.compare(this.high ^ Long.MIN_VALUE, other.high ^ Long.MIN_VALUE);
+        if (compared == 0) {
+            compared = Long.compare(this.low ^ Long.MIN_VALUE, other.low ^ Long.MIN_VALUE);
+        }
+        if (compared == 0) {
+            compared = Integer.compare(this.prefixLength, other.prefixLength);
+        }
+        return compared;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactNetwork)) {
+            return false;
+        }
+        CompactNetwork other = (CompactNetwork) o;
+        return this.high == other.high && this.low == other.low
+                && this.prefixLength == other.prefixLength && this.ipV4 == other.ipV4;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (this.high ^ (this.high >>> 32));
+        result = 31 * result + (int) (this.low ^ (this.low >>> 32));
+        result = 31 * result + this.prefixLength;
+        return this.ipV4 ? result : ~result;
+    }
+
+    /**
+     * @return the network in CIDR notation, formatted as
+     * {@link Network#toString()} formats it, e.g., <code>1.2.3.0/24</code>
+     * or <code>2001:0:0:0:0:0:0:0/16</code>.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(this.ipV4 ? 18 : 44);
+        if (this.ipV4) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                builder.append((this.low >>> shift) & 0xFF);
+                if (shift > 0) {
+                    builder.append('.');
+                }
+            }
+        } else {
+            for (int group = 0; group < 8; group++) {
+                long bits = group < 4 ? this.high : this.low;
+                builder.append(Integer.toHexString(
+                        (int) (bits >>> (48 - 16 * (group % 4))) & 0xFFFF));
+                if (group < 7) {
+                    builder.append(':');
+                }
+            }
+        }
+        return builder.append('/').append(this.prefixLength).toString();
+    }
+
+    private int bitLength() {
+        return this.ipV4 ? 32 : 128;
+    }
+
+    private static long highMask(int prefixLength) {
+        if (prefixLength >= 64) {
+            return -1L;
+        }
+        return prefixLength == 0 ? 0 : -1L << (64 - prefixLength);
+    }
+
+    private static long lowMask(int prefixLength) {
+        return prefixLength <= 64 ? 0 : -1L << (128 - prefixLength);
+    }
+
+    private static void checkPrefixLength(int prefixLength, int bitLength) {
+        if (prefixLength < 0 || prefixLength > bitLength) {
+            throw new IllegalArgumentException("Invalid prefix length for a "
+                    + bitLength + " bit address: " + prefixLength);
+        }
+    }
+
+    private static long bits(byte[] raw, int from, int length) {
+        long bits = 0;
+        for (int i = from; i < from + length; i++) {
+            bits = bits << 8 | (0xFF & raw[i]);
+        }
+        return bits;
+    }
+
+    private static void putBits(byte[] raw, int from, int length, long bits) {
+        for (int i = from + length - 1; i >= from; i--) {
+            raw[i] = (byte) bits;
+            bits >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Looks up each address in several databases at once, such as a Country, an
+ * ASN and an Anonymous IP database, and merges the records into one. The
+ * address is parsed once for all of the databases, and their search trees
+ * are searched together, a level at a time, which overlaps the memory reads
+ * of the searches rather than doing one search after the other.
+ * </p>
+ * <pre>
+ * CompositeReader composite = new CompositeReader.Builder()
+ *         .add(countryReader, "country", "continent")
+ *         .add(asnReader)
+ *         .add(anonymousIpReader, "is_anonymous", "is_tor_exit_node")
+ *         .build();
+ * JsonObject merged = composite.get(address);
+ * </pre>
+ * <p>
+ * The fields given for a database are the fields of its records that are
+ * merged, and only those are decoded. Without fields, every field of the
+ * record is merged. Where databases have a field of the same name, the value
+ * of the database added first is kept. The readers are not closed by this
+ * class, and can still be used on their own.
+ * </p>
+ */
+public final class CompositeReader {
+
+    private final Reader[] readers;
+    // The fields of each reader to merge, or null for all of them
+    private final String[][] fields;
+    private final byte[][][] keys;
+
+    private CompositeReader(Builder builder) {
+        int count = builder.readers.size();
+        this.readers = builder.readers.toArray(new Reader[count]);
+        this.fields = builder.fields.toArray(new String[count][]);
+        this.keys = new byte[count][][];
+        for (int i = 0; i < count; i++) {
+            if (this.fields[i] == null) {
+                continue;
+            }
+            this.keys[i] = new byte[this.fields[i].length][];
+            for (int j = 0; j < this.fields[i].length; j++) {
+                this.keys[i][j] = this.fields[i][j].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Builds a {@link CompositeReader}.
+     * </p>
+     */
+    public static final class Builder {
+        private final List<Reader> readers = new ArrayList<>();
+        private final List<String[]> fields = new ArrayList<>();
+
+        /**
+         * @param reader the reader of a database to look addresses up in.
+         * @param fields the fields of its records to merge. If none are
+         *               given, every field is merged.
+         * @return this builder.
+         */
+        public Builder add(Reader reader, String... fields) {
+            if (reader == null) {
+                throw new NullPointerException("Reader cannot be null");
+            }
+            for (String field : fields) {
+                if (field == null) {
+                    throw new NullPointerException("Field cannot be null");
+                }
+            }
+            this.readers.add(reader);
+            this.fields.add(fields.length == 0 ? null : fields.clone());
+            return this;
+        }
+
+        /**
+         * @return a CompositeReader for the readers added.
+         * @throws IllegalStateException if no reader has been added.
+         */
+        public CompositeReader build() {
+            if (this.readers.isEmpty()) {
+                throw new IllegalStateException("At least one reader must be added");
+            }
+            return new CompositeReader(this);
+        }
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> in all of the databases.
+     *
+     * @param ipAddress the IP address to look up.
+     * @return the merged fields of the records for the IP address, or
+     * <code>null</code> if none of the databases has data for the address.
+     * @throws IOException           if a file I/O error occurs.
+     * @throws IllegalStateException if a record is not a map.
+     */
+    public JsonObject get(InetAddress ipAddress) throws IOException {
+        return (JsonObject) this.getRecord(ipAddress).getData();
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> in all of the databases.
+     *
+     * @param ipAddress the IP address to look up.
+     * @return the merged record for the IP address, whose data is a
+     * {@link JsonObject}. Its network is the smallest of the networks the
+     * databases found the address in, which is the largest network that all
+     * of the databases have the same data for. If none of the databases has
+     * data for the address, the non-null {@link Record} will still be
+     * returned.
+     * @throws IOException           if a file I/O error occurs.
+     * @throws IllegalStateException if a record is not a map.
+     */
+    public Record getRecord(InetAddress ipAddress) throws IOException {
+        int count = this.readers.length;
+        Decoder[] decoders = new Decoder[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                decoders[i] = this.readers[i].acquireDecoder();
+            }
+            long[] results = new long[count];
+            Reader.findRecords(this.readers, decoders, ipAddress, results);
+
+            JsonObject merged = null;
+            int prefixLength = 0;
+            for (int i = 0; i < count; i++) {
+                prefixLength = Math.max(prefixLength, (int) (results[i] >>> 32));
+                int offset = (int) results[i];
+                if (offset == Reader.NO_DATA) {
+                    continue;
+                }
+                if (merged == null) {
+                    merged = new JsonObject();
+                }
+                this.merge(i, decoders[i], offset, merged);
+            }
+            return new Record(merged, ipAddress, prefixLength);
+        } finally {
+            for (int i = 0; i < count && decoders[i] != null; i++) {
+                this.readers[i].releaseDecoder(decoders[i]);
+            }
+        }
+    }
+
+    private void merge(int index, Decoder decoder, int offset, JsonObject merged)
+            throws IOException {
+        if (this.keys[index] == null) {
+            JsonElement data = this.readers[index].decodeData(decoder, offset);
+            if (!data.isJsonObject()) {
+                throw new IllegalStateException(
+                        "The record at offset " + offset + " is not a map");
+            }
+            for (Map.Entry<String, JsonElement> entry : data.getAsJsonObject().entrySet()) {
+                if (!merged.has(entry.getKey())) {
+                    merged.add(entry.getKey(), entry.getValue());
+                }
+            }
+            return;
+        }
+
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+        byte[][] keys = this.keys[index];
+        String[] fields = this.fields[index];
+        for (int j = 0; j < keys.length; j++) {
+            if (merged.has(fields[j])) {
+                continue;
+            }
+            int value = decoder.findMapValue(entries, size, keys[j]);
+            if (value != -1) {
+                merged.add(fields[j], decoder.decode(value));
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.maxmind.db;
+
+import com.maxmind.db.model.AbstractRecord;
+import com.maxmind.db.model.Continent;
+import com.maxmind.db.model.Country;
+import com.maxmind.db.model.CountryResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * The CountryResponse of every record in a database, built when the reader
+ * opens it, keyed by the offset of the record. A lookup is a binary search
+ * of a sorted array of offsets, so getCountry returns a shared instance
+ * without allocating.
+ *
+ * A country database has few distinct countries and continents, but many
+ * more records, as records also differ in their registered country, traits
+ * and so on. Responses that have an equal country or continent, which is to
+ * say one with the same GeoName ID, share the same instance of it.
+ */
+final class CountryResponseTable {
+
+    private final int[] offsets;
+    private final CountryResponse[] responses;
+
+    private CountryResponseTable(int[] offsets, CountryResponse[] responses) {
+        this.offsets = offsets;
+        this.responses = responses;
+    }
+
+    /*
+     * Builds the table for the records at the given offsets, which must be
+     * sorted and distinct.
+     */
+    static CountryResponseTable build(Decoder decoder, int[] offsets, Locales locales)
+            throws IOException {
+        Map<Country, Country> countries = new HashMap<>();
+        Map<Continent, Continent> continents = new HashMap<>();
+        CountryResponse[] responses = new CountryResponse[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            CountryResponse response = ModelDecoder.decodeCountryResponse(decoder, offsets[i],
+                    locales);
+            responses[i] = new CountryResponse(
+                    CountryResponseTable.intern(countries, response.getCountry()),
+                    CountryResponseTable.intern(continents, response.getContinent()));
+        }
+        return new CountryResponseTable(offsets, responses);
+    }
+
+    /*
+     * Returns the response for the record at the offset, or null if the
+     * offset is not that of a record in the table.
+     */
+    CountryResponse get(int offset) {
+        int i = Arrays.binarySearch(this.offsets, offset);
+        return i < 0 ? null : this.responses[i];
+    }
+
+    int size() {
+        return this.offsets.length;
+    }
+
+    private static <T extends AbstractRecord> T intern(Map<T, T> canonical, T value) {
+        if (value == null || value.getGeoNameId() == null) {
+            // Without an ID, it is not equal to anything but itself
+            return value;
+        }
+        T existing = canonical.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        canonical.put(value, value);
+        return value;
+    }
+}
@@ -1,11 +1,12 @@
 package com.maxmind.db;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.maxmind.db.cache.NoCache;
 import com.maxmind.db.cache.NodeCache;
+import com.maxmind.db.cache.PeekableCache;
 
 import java.io.IOException;
 import java.math.BigInteger;
@@ -14,6 +15,9 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
 
 /*
  * Decoder for MaxMind DB data.
@@ -24,7 +28,31 @@ final class Decoder {
 
     private static final Charset UTF_8 = StandardCharsets.UTF_8;
 
-    private static final Gson OBJECT_MAPPER = new Gson();
+    // Decoded primitives are immutable, so the common ones are shared rather
+    // than allocated for every value.
+    private static final JsonPrimitive TRUE = new JsonPrimitive(true);
+    private static final JsonPrimitive FALSE = new JsonPrimitive(false);
+
+    private static final int CANONICAL_INTEGER_COUNT = 1024;
+    private static final JsonPrimitive[] INTEGERS = new JsonPrimitive[CANONICAL_INTEGER_COUNT];
+    private static final JsonPrimitive[] LONGS = new JsonPrimitive[CANONICAL_INTEGER_COUNT];
+    private static final JsonPrimitive[] BYTES = new JsonPrimitive[256];
+
+    static {
+        for (int i = 0; i < CANONICAL_INTEGER_COUNT; i++) {
+            INTEGERS[i] = new JsonPrimitive(i);
+            LONGS[i] = new JsonPrimitive((long) i);
+        }
+        for (int i = 0; i < BYTES.length; i++) {
+            BYTES[i] = new JsonPrimitive((byte) i);
+        }
+    }
+
+    // The default limit on how deeply maps, arrays and pointers may nest. Real
+    // databases stay within a handful of levels.
+    static final int DEFAULT_MAX_DEPTH = 512;
+
+    private static final int INITIAL_STACK_SIZE = 16;
 
     private static final int[] POINTER_VALUE_OFFSETS = {0, 0, 1 << 11, (1 << 19) + ((1) << 11), 0};
 
@@ -34,12 +62,28 @@ final class Decoder {
 
     private final NodeCache cache;
 
+    // Whether values returned by the cache are shared with other lookups.
+    private final boolean sharedCache;
+
     private final long pointerBase;
 
     private final CharsetDecoder utfDecoder = UTF_8.newDecoder();
 
     private final ByteBuffer buffer;
 
+    private final int maxDepth;
+
+    // The stack of open maps and arrays, see decodeAbove(int)
+    private int depth;
+    private JsonElement[] containers = new JsonElement[INITIAL_STACK_SIZE];
+    private String[] keys = new String[INITIAL_STACK_SIZE];
+    private int[] remaining = new int[INITIAL_STACK_SIZE];
+
+    // Where Reader parses address literals, as a decoder is only used by one
+    // lookup at a time
+    private final byte[] ipV4Address = new byte[4];
+    private final byte[] ipV6Address = new byte[16];
+
     enum Type {
         EXTENDED, POINTER, UTF8_STRING, DOUBLE, BYTES, UINT16, UINT32, MAP, INT32, UINT64, UINT128, ARRAY, CONTAINER, END_MARKER, BOOLEAN, FLOAT;
 
@@ -63,18 +107,65 @@ final class Decoder {
     }
 
     Decoder(NodeCache cache, ByteBuffer buffer, long pointerBase) {
+        this(cache, buffer, pointerBase, DEFAULT_MAX_DEPTH);
+    }
+
+    Decoder(NodeCache cache, ByteBuffer buffer, long pointerBase, int maxDepth) {
         this.cache = cache;
+        this.sharedCache = !(cache instanceof NoCache);
         this.pointerBase = pointerBase;
         this.buffer = buffer;
+        this.maxDepth = maxDepth;
     }
 
+    // The number of cache loads in progress. A value decoded inside a load
+    // ends up in the cache, so pointers followed there need no copy.
+    private int loading;
+
     private final NodeCache.Loader cacheLoader = new NodeCache.Loader() {
         @Override
         public JsonElement load(int key) throws IOException {
-            return decode(key);
+            loading++;
+            try {
+                return decode(key);
+            } finally {
+                loading--;
+            }
         }
     };
 
+    /*
+     * Loads the value at the offset into the cache, if it is not there yet.
+     */
+    void preload(int offset) throws IOException {
+        this.cache.get(offset, this.cacheLoader);
+    }
+
+    /*
+     * Decodes the record at the offset a search tree data pointer resolves
+     * to. Many networks share a record, so records go through the cache as
+     * well. They share its key space with pointer targets, as both are
+     * offsets in the buffer.
+     */
+    JsonElement decodeRecord(int offset) throws IOException {
+        if (!this.sharedCache) {
+            return this.decode(offset);
+        }
+        return Decoder.unshare(this.cache.get(offset, this.cacheLoader));
+    }
+
+    /*
+     * Returns the record at the offset if the cache holds it, or null. This
+     * never decodes, so it does not count as a miss either.
+     */
+    JsonElement decodeRecordIfCached(int offset) {
+        if (!(this.cache instanceof PeekableCache)) {
+            return null;
+        }
+        JsonElement node = ((PeekableCache) this.cache).getIfPresent(offset);
+        return node == null ? null : Decoder.unshare(node);
+    }
+
     JsonElement decode(int offset) throws IOException {
         if (offset >= this.buffer.capacity()) {
             throw new InvalidDatabaseException(
@@ -83,10 +174,63 @@ final class Decoder {
         }
 
         this.buffer.position(offset);
-        return decode();
+
+        // This is re-entered through the cache loader when a pointer is
+        // followed, so the stack only belongs to this call above base.
+        int base = this.depth;
+        try {
+            return this.decodeAbove(base);
+        } catch (IOException | RuntimeException e) {
+            this.unwind(base);
+            throw e;
+        }
     }
 
-    private JsonElement decode() throws IOException {
+    /*
+     * Maps and arrays are decoded without recursion. An open container is
+     * pushed on to the stack along with the number of values it is still
+     * waiting for, and each completed value is added to the container on
+     * top of the stack. A container is itself a completed value once its
+     * last value has been added.
+     */
+    private JsonElement decodeAbove(int base) throws IOException {
+        for (; ; ) {
+            JsonElement value = this.decodeValue();
+            if (value == null) {
+                // a container was opened
+                continue;
+            }
+
+            for (; ; ) {
+                if (this.depth == base) {
+                    return value;
+                }
+                int top = this.depth - 1;
+                JsonElement container = this.containers[top];
+                if (container instanceof JsonObject) {
+                    ((JsonObject) container).add(this.keys[top], value);
+                } else {
+                    ((JsonArray) container).add(value);
+                }
+                if (--this.remaining[top] > 0) {
+                    if (container instanceof JsonObject) {
+                        this.keys[top] = this.decodeKey();
+                    }
+                    break;
+                }
+                this.containers[top] = null;
+                this.keys[top] = null;
+                this.depth--;
+                value = container;
+            }
+        }
+    }
+
+    /*
+     * Decodes the value at the current position. A non-empty map or array is
+     * pushed on to the stack and null is returned.
+     */
+    private JsonElement decodeValue() throws IOException {
         int ctrlByte = 0xFF & this.buffer.get();
 
         Type type = Type.fromControlByte(ctrlByte);
@@ -95,38 +239,145 @@ final class Decoder {
         // use the size to determine the length of the pointer and then follow
         // it.
         if (type.equals(Type.POINTER)) {
-            int pointerSize = ((ctrlByte >>> 3) & 0x3) + 1;
-            int base = pointerSize == 4 ? (byte) 0 : (byte) (ctrlByte & 0x7);
-            int packed = this.decodeInteger(base, pointerSize);
-            long pointer = packed + this.pointerBase + POINTER_VALUE_OFFSETS[pointerSize];
+            long pointer = this.decodePointer(ctrlByte);
 
             // for unit testing
             if (this.POINTER_TEST_HACK) {
                 return new JsonPrimitive(pointer);
             }
 
-            int targetOffset = (int) pointer;
-            int position = buffer.position();
-            JsonElement node = cache.get(targetOffset, cacheLoader);
-            buffer.position(position);
-            return node;
+            return this.followPointer((int) pointer);
         }
 
         if (type.equals(Type.EXTENDED)) {
-            int nextByte = this.buffer.get();
+            type = this.decodeExtendedType();
+        }
 
-            int typeNum = nextByte + 7;
+        int size = this.decodeSize(ctrlByte);
 
-            if (typeNum < 8) {
+        switch (type) {
+            case MAP:
+                JsonObject object = new JsonObject();
+                if (size == 0) {
+                    return object;
+                }
+                this.push(object, size);
+                this.keys[this.depth - 1] = this.decodeKey();
+                return null;
+            case ARRAY:
+                // Every element takes at least a byte, which bounds the
+                // capacity a corrupt size can ask for.
+                JsonArray array = new JsonArray(Math.min(size, this.buffer.remaining()));
+                if (size == 0) {
+                    return array;
+                }
+                this.push(array, size);
+                return null;
+            default:
+                return this.decodeByType(type, size);
+        }
+    }
+
+    private String decodeKey() throws IOException {
+        int ctrlByte = 0xFF & this.buffer.get();
+        Type type = Type.fromControlByte(ctrlByte);
+        if (type.equals(Type.POINTER)) {
+            return this.followPointer((int) this.decodePointer(ctrlByte)).getAsString();
+        }
+        if (type.equals(Type.EXTENDED)) {
+            type = this.decodeExtendedType();
+        }
+        int size = this.decodeSize(ctrlByte);
+        switch (type) {
+            case UTF8_STRING:
+                return this.decodeString(size);
+            case MAP:
+            case ARRAY:
                 throw new InvalidDatabaseException(
-                        "Something went horribly wrong in the decoder. An extended type "
-                                + "resolved to a type number < 8 (" + typeNum
-                                + ")");
-            }
+                        "The MaxMind DB file's data section contains bad data: "
+                                + "a map key is a " + type.name().toLowerCase(Locale.ROOT) + ".");
+            default:
+                return this.decodeByType(type, size).getAsString();
+        }
+    }
+
+    private JsonElement followPointer(int targetOffset) throws IOException {
+        // Pointers count towards the depth as well, so that a pointer cycle
+        // cannot recurse without bound.
+        this.checkDepth();
+        // Pointers take no slot of the stack, but the depth indexes it, so
+        // there must be room for a container above them.
+        this.ensureStackCapacity();
+        this.depth++;
+        int position = buffer.position();
+        JsonElement node = cache.get(targetOffset, cacheLoader);
+        buffer.position(position);
+        this.depth--;
+        return this.sharedCache && this.loading == 0 ? Decoder.unshare(node) : node;
+    }
+
+    private void push(JsonElement container, int size)
+            throws InvalidDatabaseException {
+        this.checkDepth();
+        this.ensureStackCapacity();
+        this.containers[this.depth] = container;
+        this.remaining[this.depth] = size;
+        this.depth++;
+    }
+
+    // Grows the stack to have a slot at the current depth, which checkDepth
+    // has kept below maxDepth.
+    private void ensureStackCapacity() {
+        if (this.depth >= this.containers.length) {
+            int length = Math.min(Math.max(this.containers.length * 2, this.depth + 1),
+                    this.maxDepth);
+            this.containers = Arrays.copyOf(this.containers, length);
+            this.keys = Arrays.copyOf(this.keys, length);
+            this.remaining = Arrays.copyOf(this.remaining, length);
+        }
+    }
+
+    private void checkDepth() throws InvalidDatabaseException {
+        if (this.depth >= this.maxDepth) {
+            throw new InvalidDatabaseException(
+                    "The MaxMind DB file's data section contains bad data: "
+                            + "data is nested more than " + this.maxDepth
+                            + " levels deep.");
+        }
+    }
+
+    // Drops what a failed decode left on the stack above base.
+    private void unwind(int base) {
+        for (int i = base; i < this.depth; i++) {
+            this.containers[i] = null;
+            this.keys[i] = null;
+        }
+        this.depth = base;
+    }
 
-            type = Type.get(typeNum);
+    private long decodePointer(int ctrlByte) {
+        int pointerSize = ((ctrlByte >>> 3) & 0x3) + 1;
+        int base = pointerSize == 4 ? (byte) 0 : (byte) (ctrlByte & 0x7);
+        int packed = this.decodeInteger(base, pointerSize);
+        return packed + this.pointerBase + POINTER_VALUE_OFFSETS[pointerSize];
+    }
+
+    private Type decodeExtendedType() throws InvalidDatabaseException {
+        int nextByte = this.buffer.get();
+
+        int typeNum = nextByte + 7;
+
+        if (typeNum < 8) {
+            throw new InvalidDatabaseException(
+                    "Something went horribly wrong in the decoder. An extended type "
+                            + "resolved to a type number < 8 (" + typeNum
+                            + ")");
         }
 
+        return Type.get(typeNum);
+    }
+
+    private int decodeSize(int ctrlByte) {
         int size = ctrlByte & 0x1f;
         if (size >= 29) {
             switch (size) {
@@ -140,17 +391,274 @@ final class Decoder {
                     size = 65821 + decodeInteger(3);
             }
         }
+        return size;
+    }
 
-        return this.decodeByType(type, size);
+    /*
+     * The methods below navigate the data section without decoding it. They
+     * back the lazy views, which only decode the values a caller asks for.
+     */
+
+    /*
+     * Returns the offset of the value that the pointer at offset points to,
+     * or offset itself if there is no pointer there.
+     */
+    int resolvePointer(int offset) throws InvalidDatabaseException {
+        this.checkOffset(offset);
+        int ctrlByte = 0xFF & this.buffer.get(offset);
+        if (Type.fromControlByte(ctrlByte) != Type.POINTER) {
+            return offset;
+        }
+        this.buffer.position(offset + 1);
+        int target = (int) this.decodePointer(ctrlByte);
+        this.checkOffset(target);
+        return target;
     }
 
-    private JsonElement decodeByType(Type type, int size)
-            throws IOException {
+    /*
+     * Returns the offset just past the value at offset. Maps and arrays are
+     * skipped as a whole and pointers are not followed.
+     */
+    int skip(int offset) throws InvalidDatabaseException {
+        this.checkOffset(offset);
+        this.buffer.position(offset);
+        long remaining = 1;
+        while (remaining > 0) {
+            remaining--;
+            remaining += this.skipHeader();
+        }
+        return this.buffer.position();
+    }
+
+    /*
+     * Returns the offset of the value after the one at offset when the data
+     * section is read as a flat sequence of values. This is the first entry
+     * of a map or array, as their entries follow them inline, or else the
+     * offset just past the value.
+     */
+    int nextInSequence(int offset) throws InvalidDatabaseException {
+        this.checkOffset(offset);
+        this.buffer.position(offset);
+        this.skipHeader();
+        return this.buffer.position();
+    }
+
+    /*
+     * Reads the control byte at the current position and moves past the
+     * value, except for the entries of a map or array. Returns the number of
+     * values that make up those entries.
+     */
+    private int skipHeader() throws InvalidDatabaseException {
+        int ctrlByte = 0xFF & this.buffer.get();
+        Type type = Type.fromControlByte(ctrlByte);
+        if (type == Type.POINTER) {
+            int pointerSize = ((ctrlByte >>> 3) & 0x3) + 1;
+            this.buffer.position(this.buffer.position() + pointerSize);
+            return 0;
+        }
+        if (type == Type.EXTENDED) {
+            type = this.decodeExtendedType();
+        }
+        int size = this.decodeSize(ctrlByte);
         switch (type) {
             case MAP:
-                return this.decodeMap(size);
+                return 2 * size;
             case ARRAY:
-                return this.decodeArray(size);
+                return size;
+            case BOOLEAN:
+                // the size is the value
+                return 0;
+            default:
+                this.buffer.position(this.buffer.position() + size);
+                return 0;
+        }
+    }
+
+    /*
+     * Adds the targets of the pointers this decoder follows through the
+     * cache when it decodes the value at offset: a pointer in place of the
+     * value, and those among the values of the maps and arrays it is or
+     * points to, down to the maximum depth. Map keys are skipped, as they are
+     * not decoded through the cache, and so is a target already added, along
+     * with everything below it.
+     */
+    void addPointerTargets(int offset, Set<Integer> targets)
+            throws InvalidDatabaseException {
+        this.addPointerTargets(offset, 0, targets);
+    }
+
+    private void addPointerTargets(int offset, int depth, Set<Integer> targets)
+            throws InvalidDatabaseException {
+        if (depth > this.maxDepth) {
+            return;
+        }
+        int target = this.resolvePointer(offset);
+        if (target != offset) {
+            if (!targets.add(target)) {
+                return;
+            }
+            offset = target;
+        }
+        Type type = this.typeAt(offset);
+        if (type != Type.MAP && type != Type.ARRAY) {
+            return;
+        }
+        int size = this.decodeContainerSize(offset, type);
+        int entry = this.position();
+        for (int i = 0; i < size; i++) {
+            if (type == Type.MAP) {
+                entry = this.skip(entry);
+            }
+            int next = this.skip(entry);
+            this.addPointerTargets(entry, depth + 1, targets);
+            entry = next;
+        }
+    }
+
+    /*
+     * Returns the type of the value at offset, without following a pointer.
+     */
+    Type typeAt(int offset) throws InvalidDatabaseException {
+        this.checkOffset(offset);
+        this.buffer.position(offset);
+        Type type = Type.fromControlByte(this.buffer.get());
+        return type == Type.EXTENDED ? this.decodeExtendedType() : type;
+    }
+
+    /*
+     * Returns the size of the value of the expected type at offset, such as
+     * a map or array, following a pointer if there is one. The buffer is left
+     * just past the header, at a container's first element.
+     */
+    int decodeContainerSize(int offset, Type expected) throws InvalidDatabaseException {
+        int resolved = this.resolvePointer(offset);
+        this.buffer.position(resolved);
+        int ctrlByte = 0xFF & this.buffer.get();
+        Type type = Type.fromControlByte(ctrlByte);
+        if (type == Type.EXTENDED) {
+            type = this.decodeExtendedType();
+        }
+        if (type != expected) {
+            throw new IllegalStateException("Not a " + expected.name()
+                    + ": found " + type.name() + " at offset " + resolved);
+        }
+        return this.decodeSize(ctrlByte);
+    }
+
+    /*
+     * Decodes the string at offset, following a pointer if there is one,
+     * without building a JsonElement.
+     */
+    String decodeStringAt(int offset) throws IOException {
+        return this.decodeString(this.decodeContainerSize(offset, Type.UTF8_STRING));
+    }
+
+    /*
+     * Decodes the double at offset, following a pointer if there is one,
+     * without building a JsonElement.
+     */
+    double decodeDoubleAt(int offset) throws InvalidDatabaseException {
+        int size = this.decodeContainerSize(offset, Type.DOUBLE);
+        if (size != 8) {
+            throw new InvalidDatabaseException(
+                    "The MaxMind DB file's data section contains bad data: "
+                            + "invalid size of double.");
+        }
+        return this.buffer.getDouble();
+    }
+
+    /*
+     * Decodes the 16 or 32-bit integer at offset, following a pointer if
+     * there is one, without building a JsonElement.
+     */
+    long decodeIntegerAt(int offset) throws InvalidDatabaseException {
+        int resolved = this.resolvePointer(offset);
+        this.buffer.position(resolved);
+        int ctrlByte = 0xFF & this.buffer.get();
+        Type type = Type.fromControlByte(ctrlByte);
+        if (type == Type.EXTENDED) {
+            type = this.decodeExtendedType();
+        }
+        int size = this.decodeSize(ctrlByte);
+        switch (type) {
+            case UINT16:
+            case UINT32:
+                return this.decodeLong(size);
+            case INT32:
+                return this.decodeInteger(size);
+            default:
+                throw new IllegalStateException("Not an integer: found "
+                        + type.name() + " at offset " + resolved);
+        }
+    }
+
+    /*
+     * Whether the string at offset, following a pointer if there is one,
+     * consists of exactly the given UTF-8 bytes. The string is compared in
+     * place and not decoded.
+     */
+    boolean stringEquals(int offset, byte[] utf8) throws InvalidDatabaseException {
+        int resolved = this.resolvePointer(offset);
+        this.buffer.position(resolved);
+        int ctrlByte = 0xFF & this.buffer.get();
+        if (Type.fromControlByte(ctrlByte) != Type.UTF8_STRING
+                || this.decodeSize(ctrlByte) != utf8.length) {
+            return false;
+        }
+        int start = this.buffer.position();
+        for (int i = 0; i < utf8.length; i++) {
+            if (this.buffer.get(start + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Returns the offset of the value stored under the key in the map whose
+     * first entry is at entriesOffset, or -1 if there is no such key. Only the
+     * keys are looked at; the values passed over are skipped.
+     */
+    int findMapValue(int entriesOffset, int size, byte[] key)
+            throws InvalidDatabaseException {
+        int offset = entriesOffset;
+        for (int i = 0; i < size; i++) {
+            int valueOffset = this.skip(offset);
+            if (this.stringEquals(offset, key)) {
+                return valueOffset;
+            }
+            offset = this.skip(valueOffset);
+        }
+        return -1;
+    }
+
+    ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    /*
+     * Parses an IP address literal into an array of this decoder, which is
+     * overwritten by the next call.
+     */
+    byte[] parseAddress(CharSequence ipAddress) {
+        return IpAddressParser.parse(ipAddress, this.ipV4Address, this.ipV6Address);
+    }
+
+    int position() {
+        return this.buffer.position();
+    }
+
+    private void checkOffset(int offset) throws InvalidDatabaseException {
+        if (offset < 0 || offset >= this.buffer.capacity()) {
+            throw new InvalidDatabaseException(
+                    "The MaxMind DB file's data section contains bad data: "
+                            + "pointer larger than the database.");
+        }
+    }
+
+    private JsonElement decodeByType(Type type, int size)
+            throws IOException {
+        switch (type) {
             case BOOLEAN:
                 return decodeBoolean(size);
             case UTF8_STRING:
@@ -160,7 +668,7 @@ final class Decoder {
             case FLOAT:
                 return this.decodeFloat(size);
             case BYTES:
-                return OBJECT_MAPPER.toJsonTree(getByteArray(size));
+                return this.decodeBytes(size);
             case UINT16:
                 return this.decodeUint16(size);
             case UINT32:
@@ -185,11 +693,18 @@ final class Decoder {
     }
 
     private JsonPrimitive decodeUint16(int size) {
-        return new JsonPrimitive(this.decodeInteger(size));
+        return Decoder.integerPrimitive(this.decodeInteger(size));
     }
 
     private JsonPrimitive decodeInt32(int size) {
-        return new JsonPrimitive(this.decodeInteger(size));
+        return Decoder.integerPrimitive(this.decodeInteger(size));
+    }
+
+    private static JsonPrimitive integerPrimitive(int value) {
+        if (value >= 0 && value < CANONICAL_INTEGER_COUNT) {
+            return INTEGERS[value];
+        }
+        return new JsonPrimitive(value);
     }
 
     private long decodeLong(int size) {
@@ -201,7 +716,11 @@ final class Decoder {
     }
 
     private JsonPrimitive decodeUint32(int size) {
-        return new JsonPrimitive(this.decodeLong(size));
+        long value = this.decodeLong(size);
+        if (value < CANONICAL_INTEGER_COUNT) {
+            return LONGS[(int) value];
+        }
+        return new JsonPrimitive(value);
     }
 
     private int decodeInteger(int size) {
@@ -247,9 +766,9 @@ final class Decoder {
             throws InvalidDatabaseException {
         switch (size) {
             case 0:
-                return new JsonPrimitive(false);
+                return FALSE;
             case 1:
-                return new JsonPrimitive(true);
+                return TRUE;
             default:
                 throw new InvalidDatabaseException(
                         "The MaxMind DB file's data section contains bad data: "
@@ -257,25 +776,32 @@ final class Decoder {
         }
     }
 
-    private JsonArray decodeArray(int size) throws IOException {
-        JsonArray array = new JsonArray();
+    // The same array of numbers that Gson creates for a byte[], built
+    // directly from the buffer.
+    private JsonArray decodeBytes(int size) {
+        JsonArray array = new JsonArray(Math.min(size, this.buffer.remaining()));
         for (int i = 0; i < size; i++) {
-            JsonElement r = this.decode();
-            array.add(r);
+            array.add(BYTES[0xFF & this.buffer.get()]);
         }
-
         return array;
     }
 
-    private JsonObject decodeMap(int size) throws IOException {
-        JsonObject object = new JsonObject();
-        for (int i = 0; i < size; i++) {
-            String key = this.decode().getAsString();
-            JsonElement value = this.decode();
-            object.add(key, value);
+    /*
+     * Values held by a cache are frozen: they are never handed out directly.
+     * The caller gets its own copy of the JsonObject and JsonArray containers,
+     * which are the only mutable parts of a Gson tree. The primitives and
+     * their strings are immutable and are shared with the cached tree, so this
+     * does not redo any of the decoding, but copying the containers still
+     * costs a good part of what decoding them does. Gson's containers are
+     * final, so a read-only view cannot stand in for them, and every caller
+     * of the decoder's trees hands them out, so there is no later point at
+     * which to copy less. The typed models do not go through here at all.
+     */
+    private static JsonElement unshare(JsonElement node) {
+        if (node.isJsonPrimitive() || node.isJsonNull()) {
+            return node;
         }
-
-        return object;
+        return node.deepCopy();
     }
 
     private byte[] getByteArray(int length) {
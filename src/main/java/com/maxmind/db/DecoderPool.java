@@ -0,0 +1,72 @@
+package com.maxmind.db;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * A small lock-free pool of Decoders, each with its own view of the database
+ * buffer, so that lookups do not have to create a new Decoder and buffer
+ * duplicate every time.
+ *
+ * Decoders are not bound to threads, which keeps the pool bounded when it is
+ * used from a large number of short-lived or virtual threads. A lookup takes a
+ * Decoder out of a slot and puts it back when it is done; when every slot it
+ * probes is empty, the caller creates a new Decoder, and when every slot it
+ * probes is full on release, the Decoder is dropped.
+ */
+final class DecoderPool {
+
+    private static final int MAX_PROBES = 4;
+
+    private final AtomicReferenceArray<Decoder> slots;
+    private final int mask;
+
+    DecoderPool() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    DecoderPool(int minimumSize) {
+        int size = Integer.highestOneBit(Math.max(minimumSize, 1) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(Math.max(size, MAX_PROBES));
+        this.mask = this.slots.length() - 1;
+    }
+
+    /*
+     * Returns a pooled Decoder, or null if none is available.
+     */
+    Decoder acquire() {
+        int start = DecoderPool.startIndex();
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int index = (start + i) & this.mask;
+            Decoder decoder = this.slots.get(index);
+            if (decoder != null && this.slots.compareAndSet(index, decoder, null)) {
+                return decoder;
+            }
+        }
+        return null;
+    }
+
+    void release(Decoder decoder) {
+        int start = DecoderPool.startIndex();
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int index = (start + i) & this.mask;
+            if (this.slots.get(index) == null
+                    && this.slots.compareAndSet(index, null, decoder)) {
+                return;
+            }
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < this.slots.length(); i++) {
+            this.slots.set(i, null);
+        }
+    }
+
+    private static int startIndex() {
+        // Spread the thread ids so that neighbouring threads start probing at
+        // different slots.
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
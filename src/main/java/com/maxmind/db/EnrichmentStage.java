@@ -0,0 +1,641 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonElement;
+import com.maxmind.db.model.AsnResponse;
+import com.maxmind.db.model.CityResponse;
+import com.maxmind.db.model.CountryResponse;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>
+ * A stage of a streaming pipeline that looks up the address of each item
+ * that passes through it. Items are submitted with {@link #submit(Object)},
+ * and each is passed on to a {@link Subscriber} with the result of its
+ * lookup, in the order in which they were submitted.
+ * </p>
+ * <pre>
+ * EnrichmentStage&lt;Event, CountryResponse&gt; stage =
+ *         new EnrichmentStage.Builder&lt;&gt;(reader, EnrichmentStage.COUNTRY,
+ *                 new EnrichmentStage.AddressExtractor&lt;Event&gt;() {
+ *                     &#64;Override
+ *                     public InetAddress addressOf(Event event) {
+ *                         return event.getClientAddress();
+ *                     }
+ *                 })
+ *         .parallelism(4)
+ *         .build(subscriber);
+ * for (Event event : events) {
+ *     stage.submit(event);
+ * }
+ * stage.complete();
+ * </pre>
+ * <p>
+ * Lookups run on an executor, on at most a given number of threads at once.
+ * Each of these takes the pending items in batches, so that a busy stage
+ * does not hand every item to the executor on its own. The stage holds at
+ * most a given number of items that have been submitted but not yet passed
+ * on, and {@link #submit(Object)} waits while it is full.
+ * </p>
+ * <p>
+ * The output side follows the Reactive Streams protocol on Java 7 types, as
+ * Java 7, which this library supports, has no
+ * <code>java.util.concurrent.Flow</code>. The subscriber is given a
+ * {@link Subscription} before any item, and an item is passed on only once
+ * the subscriber has requested it with {@link Subscription#request(long)}.
+ * Items that have not been requested stay in the stage, so a subscriber that
+ * requests slowly fills it up and slows down the submitter: the pipeline
+ * never buffers more than the stage holds. A <code>Flow.Subscriber</code> can
+ * be adapted to {@link Subscriber} by forwarding each method. The input side
+ * is not a subscriber; items are pushed with {@link #submit(Object)}, which
+ * blocks while the stage is full, or {@link #offer(Object)}, which does not.
+ * </p>
+ * <p>
+ * The subscriber is called by one thread at a time: one of the threads that
+ * do the lookups, or a thread calling {@link #complete()} or
+ * {@link Subscription#request(long)}.
+ * </p>
+ * <p>
+ * As in Reactive Streams, a subscriber that throws, or that cancels its
+ * subscription, cancels the stage. The items that have not been passed on
+ * yet are dropped without being looked up, {@link Subscriber#onComplete()}
+ * is not called, and {@link #submit(Object)} and {@link #offer(Object)}
+ * throw an <code>IllegalStateException</code>, including in threads waiting
+ * to submit. If the subscriber threw, the exception is the cause, and is
+ * also thrown on the thread that called the subscriber.
+ * </p>
+ *
+ * @param <T> the type of the items.
+ * @param <R> the type of the result of a lookup.
+ */
+public final class EnrichmentStage<T, R> {
+
+    /**
+     * Gets the address to look up from an item.
+     *
+     * @param <T> the type of the items.
+     */
+    public interface AddressExtractor<T> {
+        /**
+         * @param item the item.
+         * @return the address to look up for the item.
+         */
+        InetAddress addressOf(T item);
+    }
+
+    /**
+     * Looks up an address in a reader, such as {@link #COUNTRY}.
+     *
+     * @param <R> the type of the result.
+     */
+    public interface Lookup<R> {
+        /**
+         * @param reader  the reader to look the address up in.
+         * @param address the address to look up.
+         * @return the result, or <code>null</code> if there is no data for
+         * the address.
+         * @throws IOException if a file I/O error occurs.
+         */
+        R lookUp(Reader reader, InetAddress address) throws IOException;
+    }
+
+    /**
+     * The link between a stage and its subscriber, through which the
+     * subscriber asks for items.
+     */
+    public interface Subscription {
+        /**
+         * Asks for up to <code>n</code> more items. Requests add up, and a
+         * total of <code>Long.MAX_VALUE</code> or more asks for all of the
+         * items. Items that are ready may be passed on before this returns,
+         * on the calling thread. A request that is not positive cancels the
+         * stage with an <code>IllegalArgumentException</code>.
+         *
+         * @param n the number of items to ask for.
+         */
+        void request(long n);
+
+        /**
+         * Cancels the stage. No more items are passed on, and the items that
+         * have not been passed on yet are dropped.
+         */
+        void cancel();
+    }
+
+    /**
+     * Receives the items that have passed through the stage. Its methods are
+     * called by one thread at a time, and should not throw; if one does, the
+     * stage is cancelled.
+     *
+     * @param <T> the type of the items.
+     * @param <R> the type of the result of a lookup.
+     */
+    public interface Subscriber<T, R> {
+        /**
+         * Called once, when the stage is built, before any other method.
+         * No items are passed on until they are requested through the
+         * subscription.
+         *
+         * @param subscription the subscription to request items through.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with an item and the result of its lookup, once it has been
+         * requested.
+         *
+         * @param item   the item.
+         * @param result the result of the lookup, or <code>null</code> if
+         *               there is no data for the address.
+         */
+        void onNext(T item, R result);
+
+        /**
+         * Called with an item whose lookup failed, once it has been
+         * requested. The stage carries on with the items after it.
+         *
+         * @param item    the item.
+         * @param failure the reason the lookup failed.
+         */
+        void onError(T item, Throwable failure);
+
+        /**
+         * Called once all of the items have been passed on after
+         * {@link EnrichmentStage#complete()}, whether or not more have been
+         * requested.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Looks up the record data, as {@link Reader#get(InetAddress)} does.
+     */
+    public static final Lookup<JsonElement> RECORD = new Lookup<JsonElement>() {
+        @Override
+        public JsonElement lookUp(Reader reader, InetAddress address) throws IOException {
+            return reader.get(address);
+        }
+    };
+
+    /**
+     * Looks up the country, as {@link Reader#getCountry(InetAddress)} does.
+     */
+    public static final Lookup<CountryResponse> COUNTRY = new Lookup<CountryResponse>() {
+        @Override
+        public CountryResponse lookUp(Reader reader, InetAddress address)
+                throws IOException {
+            return reader.getCountry(address);
+        }
+    };
+
+    /**
+     * Looks up the city, as {@link Reader#getCity(InetAddress)} does.
+     */
+    public static final Lookup<CityResponse> CITY = new Lookup<CityResponse>() {
+        @Override
+        public CityResponse lookUp(Reader reader, InetAddress address) throws IOException {
+            return reader.getCity(address);
+        }
+    };
+
+    /**
+     * Looks up the autonomous system, as {@link Reader#getAsn(InetAddress)}
+     * does.
+     */
+    public static final Lookup<AsnResponse> ASN = new Lookup<AsnResponse>() {
+        @Override
+        public AsnResponse lookUp(Reader reader, InetAddress address) throws IOException {
+            return reader.getAsn(address);
+        }
+    };
+
+    private static final AddressExtractor<InetAddress> ADDRESSES =
+            new AddressExtractor<InetAddress>() {
+                @Override
+                public InetAddress addressOf(InetAddress address) {
+                    return address;
+                }
+            };
+
+    /**
+     * @return an extractor for a stage whose items are the addresses
+     * themselves.
+     */
+    public static AddressExtractor<InetAddress> addresses() {
+        return ADDRESSES;
+    }
+
+    private final Reader reader;
+    private final Lookup<? extends R> lookup;
+    private final AddressExtractor<? super T> extractor;
+    private final Subscriber<? super T, ? super R> subscriber;
+    private final Subscription subscription = new Subscription() {
+        @Override
+        public void request(long n) {
+            EnrichmentStage.this.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (EnrichmentStage.this.lock) {
+                EnrichmentStage.this.cancel(null);
+            }
+        }
+    };
+    private final Executor executor;
+    private final int parallelism;
+    private final int batchSize;
+    private final int maxPending;
+
+    // Guards everything below, and is waited on by submitters while the
+    // stage is full
+    private final Object lock = new Object();
+    // Items waiting to be looked up
+    private final ArrayDeque<Item<T, R>> queue = new ArrayDeque<>();
+    // Items not yet passed on, in the order they were submitted
+    private final ArrayDeque<Item<T, R>> pending = new ArrayDeque<>();
+    private int workers;
+    // The number of items the subscriber has requested but not been passed
+    private long demand;
+    private boolean emitting;
+    private boolean completed;
+    private boolean completionSignalled;
+    private boolean cancelled;
+    // What the subscriber threw, if that is what cancelled the stage
+    private Throwable subscriberFailure;
+
+    private static final class Item<T, R> {
+        final T value;
+        R result;
+        Throwable failure;
+        boolean done;
+
+        Item(T value) {
+            this.value = value;
+        }
+    }
+
+    private EnrichmentStage(Builder<T, R> builder,
+                            Subscriber<? super T, ? super R> subscriber) {
+        this.reader = builder.reader;
+        this.lookup = builder.lookup;
+        this.extractor = builder.extractor;
+        this.executor = builder.executor;
+        this.parallelism = builder.parallelism;
+        this.batchSize = builder.batchSize;
+        this.maxPending = builder.maxPending;
+        this.subscriber = subscriber;
+    }
+
+    /**
+     * <p>
+     * Builds an {@link EnrichmentStage}.
+     * </p>
+     *
+     * @param <T> the type of the items.
+     * @param <R> the type of the result of a lookup.
+     */
+    public static final class Builder<T, R> {
+        private final Reader reader;
+        private final Lookup<? extends R> lookup;
+        private final AddressExtractor<? super T> extractor;
+
+        private Executor executor = AsyncReader.DefaultExecutor.INSTANCE;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int batchSize = 64;
+        private int maxPending = 1024;
+
+        /**
+         * @param reader    the reader to look the addresses up in.
+         * @param lookup    the lookup to do for each item, such as
+         *                  {@link EnrichmentStage#COUNTRY}.
+         * @param extractor gets the address to look up from an item, such as
+         *                  {@link EnrichmentStage#addresses()}.
+         */
+        public Builder(Reader reader, Lookup<? extends R> lookup,
+                       AddressExtractor<? super T> extractor) {
+            if (reader == null || lookup == null || extractor == null) {
+                throw new NullPointerException(
+                        "The reader, lookup and extractor cannot be null");
+            }
+            this.reader = reader;
+            this.lookup = lookup;
+            this.extractor = extractor;
+        }
+
+        /**
+         * @param executor the executor to look addresses up on. The default
+         *                 is the one {@link AsyncReader} uses by default.
+         * @return this builder.
+         */
+        public Builder<T, R> executor(Executor executor) {
+            if (executor == null) {
+                throw new NullPointerException("Executor cannot be null");
+            }
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param parallelism the most tasks that look addresses up at once.
+         *                    The default is the number of processors.
+         * @return this builder.
+         */
+        public Builder<T, R> parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException(
+                        "The parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param batchSize the most items a task takes from the stage at a
+         *                  time. The default is 64.
+         * @return this builder.
+         */
+        public Builder<T, R> batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException(
+                        "The batch size must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param maxPending the most items the stage holds that have been
+         *                   submitted but not yet passed on. The default is
+         *                   1024.
+         * @return this builder.
+         */
+        public Builder<T, R> maxPending(int maxPending) {
+            if (maxPending < 1) {
+                throw new IllegalArgumentException(
+                        "The maximum number of pending items must be positive: "
+                                + maxPending);
+            }
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * @param subscriber receives the items with the results of their
+         *                   lookups.
+         * @return a new stage.
+         */
+        public EnrichmentStage<T, R> build(Subscriber<? super T, ? super R> subscriber) {
+            if (subscriber == null) {
+                throw new NullPointerException("Subscriber cannot be null");
+            }
+            EnrichmentStage<T, R> stage = new EnrichmentStage<>(this, subscriber);
+            subscriber.onSubscribe(stage.subscription);
+            return stage;
+        }
+    }
+
+    /**
+     * Submits an item, waiting while the stage is full.
+     *
+     * @param item the item.
+     * @throws InterruptedException  if the thread is interrupted while
+     *                               waiting.
+     * @throws IllegalStateException if {@link #complete()} has been called,
+     *                               or the stage has been cancelled.
+     */
+    public void submit(T item) throws InterruptedException {
+        synchronized (this.lock) {
+            while (this.isFull()) {
+                this.lock.wait();
+            }
+            this.add(item);
+        }
+        this.startWorker();
+    }
+
+    /**
+     * Submits an item if the stage is not full.
+     *
+     * @param item the item.
+     * @return whether the item was submitted.
+     * @throws IllegalStateException if {@link #complete()} has been called,
+     *                               or the stage has been cancelled.
+     */
+    public boolean offer(T item) {
+        synchronized (this.lock) {
+            if (this.isFull()) {
+                return false;
+            }
+            this.add(item);
+        }
+        this.startWorker();
+        return true;
+    }
+
+    /**
+     * Signals that no more items will be submitted. The subscriber's
+     * {@link Subscriber#onComplete()} is called once the items that have
+     * been submitted are passed on.
+     */
+    public void complete() {
+        synchronized (this.lock) {
+            this.completed = true;
+        }
+        this.emit();
+    }
+
+    /**
+     * @return the number of items that have been submitted but not yet
+     * passed on.
+     */
+    public int getPendingCount() {
+        synchronized (this.lock) {
+            return this.pending.size();
+        }
+    }
+
+    private boolean isFull() {
+        if (this.subscriberFailure != null) {
+            throw new IllegalStateException("The subscriber failed",
+                    this.subscriberFailure);
+        }
+        if (this.cancelled) {
+            throw new IllegalStateException("The stage has been cancelled");
+        }
+        if (this.completed) {
+            throw new IllegalStateException("The stage has been completed");
+        }
+        return this.pending.size() >= this.maxPending;
+    }
+
+    private void add(T value) {
+        Item<T, R> item = new Item<>(value);
+        this.queue.addLast(item);
+        this.pending.addLast(item);
+    }
+
+    private void startWorker() {
+        synchronized (this.lock) {
+            if (this.workers >= this.parallelism || this.queue.isEmpty()) {
+                return;
+            }
+            this.workers++;
+        }
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                EnrichmentStage.this.work();
+            }
+        };
+        try {
+            this.executor.execute(worker);
+        } catch (RejectedExecutionException e) {
+            // The lookups still have to be done, so do them here rather than
+            // leave the items to wait forever
+            worker.run();
+        }
+    }
+
+    /*
+     * Takes batches of items and looks them up until there are none left.
+     */
+    private void work() {
+        List<Item<T, R>> batch = new ArrayList<>(this.batchSize);
+        // The worker is released in the same block that finds the queue
+        // empty, so that an item added right after starts another worker,
+        // and otherwise when the subscriber throws
+        boolean released = false;
+        try {
+            while (true) {
+                synchronized (this.lock) {
+                    while (batch.size() < this.batchSize && !this.queue.isEmpty()) {
+                        batch.add(this.queue.pollFirst());
+                    }
+                    if (batch.isEmpty()) {
+                        this.workers--;
+                        released = true;
+                        return;
+                    }
+                }
+                for (Item<T, R> item : batch) {
+                    try {
+                        item.result = this.lookup.lookUp(this.reader,
+                                this.extractor.addressOf(item.value));
+                    } catch (IOException | RuntimeException e) {
+                        item.failure = e;
+                    }
+                }
+                synchronized (this.lock) {
+                    for (Item<T, R> item : batch) {
+                        item.done = true;
+                    }
+                }
+                batch.clear();
+                this.emit();
+            }
+        } finally {
+            if (!released) {
+                synchronized (this.lock) {
+                    this.workers--;
+                }
+            }
+        }
+    }
+
+    private void request(long n) {
+        synchronized (this.lock) {
+            if (this.cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                this.cancel(new IllegalArgumentException(
+                        "The number of items requested must be positive: " + n));
+                return;
+            }
+            this.demand += n;
+            if (this.demand < 0) {
+                this.demand = Long.MAX_VALUE;
+            }
+        }
+        this.emit();
+    }
+
+    /*
+     * Passes on the items at the head of the pending queue whose lookups are
+     * done, as long as the subscriber has requested them. Only one thread
+     * emits at a time; a thread that finds another one emitting leaves its
+     * items to it, and a request made from within the subscriber is picked up
+     * by the loop that called it.
+     */
+    private void emit() {
+        synchronized (this.lock) {
+            if (this.emitting || this.cancelled) {
+                return;
+            }
+            this.emitting = true;
+        }
+        while (true) {
+            Item<T, R> item;
+            synchronized (this.lock) {
+                item = this.pending.peekFirst();
+                if (this.cancelled) {
+                    this.emitting = false;
+                    return;
+                }
+                if (item == null || !item.done || this.demand == 0) {
+                    this.emitting = false;
+                    if (item != null || !this.completed || this.completionSignalled) {
+                        return;
+                    }
+                    this.completionSignalled = true;
+                } else {
+                    this.pending.pollFirst();
+                    this.demand--;
+                    this.lock.notifyAll();
+                }
+            }
+            try {
+                if (item == null) {
+                    this.subscriber.onComplete();
+                    return;
+                }
+                if (item.failure == null) {
+                    this.subscriber.onNext(item.value, item.result);
+                } else {
+                    this.subscriber.onError(item.value, item.failure);
+                }
+            } catch (RuntimeException | Error e) {
+                synchronized (this.lock) {
+                    if (item != null) {
+                        this.emitting = false;
+                    }
+                    this.cancel(e);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /*
+     * Drops the items that have not been passed on after the subscriber
+     * threw or cancelled, and wakes the threads waiting to submit so that
+     * they throw. The first cancellation wins.
+     */
+    private void cancel(Throwable subscriberFailure) {
+        if (this.cancelled) {
+            return;
+        }
+        this.cancelled = true;
+        this.subscriberFailure = subscriberFailure;
+        this.queue.clear();
+        this.pending.clear();
+        this.lock.notifyAll();
+    }
+}
@@ -0,0 +1,165 @@
+package com.maxmind.db;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Tracks the networks and records looked up most, from a sample of the
+ * lookups. Each is counted with the Space-Saving algorithm, which keeps a
+ * fixed number of counters: a key without a counter takes over the counter
+ * with the lowest count, and starts from that count plus one. Any key looked
+ * up more often than the total over the number of counters is certain to
+ * have one, and no count is too high by more than the count it started from.
+ */
+final class HotSetTracker {
+
+    private final int sampleInterval;
+    private final Summary networks;
+    private final Summary records;
+
+    HotSetTracker(int size, int sampleInterval) {
+        this.sampleInterval = sampleInterval;
+        this.networks = new Summary(size);
+        this.records = new Summary(size);
+    }
+
+    boolean sample() {
+        return this.sampleInterval == 1
+                || ThreadLocalRandom.current().nextInt(this.sampleInterval) == 0;
+    }
+
+    /*
+     * Identifies the network of the given prefix length that the address is
+     * in. This is exact for IPv4 networks, and a hash for IPv6 networks.
+     */
+    static long networkKey(byte[] rawAddress, int prefixLength) {
+        long key = prefixLength;
+        int bytes = (prefixLength + 7) / 8;
+        for (int i = 0; i < bytes; i++) {
+            int b = 0xFF & rawAddress[i];
+            int bits = prefixLength - 8 * i;
+            if (bits < 8) {
+                b &= 0xFF << (8 - bits);
+            }
+            key = rawAddress.length == 4 ? key << 8 | b : (key ^ b) * 0x100000001B3L;
+        }
+        return key;
+    }
+
+    /*
+     * Counts a lookup. The network key identifies the network, see
+     * networkKey(byte[], int).
+     */
+    synchronized void record(long networkKey, InetAddress address, int prefixLength,
+                             int dataOffset) {
+        this.networks.add(networkKey, address, prefixLength, dataOffset);
+        this.records.add(dataOffset, address, prefixLength, dataOffset);
+    }
+
+    synchronized List<HotSpot> networks() {
+        return this.networks.top(this.sampleInterval);
+    }
+
+    synchronized List<HotSpot> records() {
+        return this.records.top(this.sampleInterval);
+    }
+
+    private static final class Counter {
+        final long key;
+        long count;
+        long error;
+        InetAddress address;
+        int prefixLength;
+        int dataOffset;
+        int index;
+
+        Counter(long key) {
+            this.key = key;
+        }
+    }
+
+    /*
+     * The counters are kept in a min-heap by count, so that the lowest is at
+     * the root, and in a map by key.
+     */
+    private static final class Summary {
+        private final Counter[] heap;
+        private final Map<Long, Counter> counters;
+        private int size;
+
+        Summary(int capacity) {
+            this.heap = new Counter[capacity];
+            this.counters = new HashMap<>(capacity * 2);
+        }
+
+        void add(long key, InetAddress address, int prefixLength, int dataOffset) {
+            Counter counter = this.counters.get(key);
+            if (counter == null) {
+                if (this.size < this.heap.length) {
+                    counter = new Counter(key);
+                    counter.index = this.size;
+                    this.heap[this.size++] = counter;
+                } else {
+                    Counter lowest = this.heap[0];
+                    this.counters.remove(lowest.key);
+                    counter = new Counter(key);
+                    counter.count = lowest.count;
+                    counter.error = lowest.count;
+                    counter.index = 0;
+                    this.heap[0] = counter;
+                }
+                this.counters.put(key, counter);
+                counter.address = address;
+                counter.prefixLength = prefixLength;
+                counter.dataOffset = dataOffset;
+            }
+            counter.count++;
+            this.siftDown(counter.index);
+        }
+
+        List<HotSpot> top(int scale) {
+            Counter[] sorted = Arrays.copyOf(this.heap, this.size);
+            Arrays.sort(sorted, new Comparator<Counter>() {
+                @Override
+                public int compare(Counter a, Counter b) {
+                    return Long.compare(b.count, a.count);
+                }
+            });
+            List<HotSpot> top = new ArrayList<>(sorted.length);
+            for (Counter counter : sorted) {
+                top.add(new HotSpot(new Network(counter.address, counter.prefixLength),
+                        counter.dataOffset, counter.count * scale, counter.error * scale));
+            }
+            return Collections.unmodifiableList(top);
+        }
+
+        private void siftDown(int index) {
+            Counter counter = this.heap[index];
+            for (; ; ) {
+                int child = 2 * index + 1;
+                if (child >= this.size) {
+                    break;
+                }
+                if (child + 1 < this.size
+                        && this.heap[child + 1].count < this.heap[child].count) {
+                    child++;
+                }
+                if (this.heap[child].count >= counter.count) {
+                    break;
+                }
+                this.heap[index] = this.heap[child];
+                this.heap[index].index = index;
+                index = child;
+            }
+            this.heap[index] = counter;
+            counter.index = index;
+        }
+    }
+}
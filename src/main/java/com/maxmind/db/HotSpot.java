@@ -0,0 +1,57 @@
+package com.maxmind.db;
+
+/**
+ * A network or record that is looked up often, as tracked by a reader built
+ * with {@link Reader.Builder#trackHotSet(int, int)}.
+ */
+public final class HotSpot {
+    private final Network network;
+    private final int dataOffset;
+    private final long count;
+    private final long error;
+
+    HotSpot(Network network, int dataOffset, long count, long error) {
+        this.network = network;
+        this.dataOffset = dataOffset;
+        this.count = count;
+        this.error = error;
+    }
+
+    /**
+     * @return the network looked up. For a record, which many networks may
+     * share, this is one of the networks it was looked up through.
+     */
+    public Network getNetwork() {
+        return this.network;
+    }
+
+    /**
+     * @return the offset of the record in the database.
+     */
+    public int getDataOffset() {
+        return this.dataOffset;
+    }
+
+    /**
+     * @return the estimated number of lookups. This may be too high by up to
+     * {@link #getError()}, and is scaled up from the lookups sampled.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return the most that {@link #getCount()} may be too high by.
+     */
+    public long getError() {
+        return this.error;
+    }
+
+    @Override
+    public String toString() {
+        return "HotSpot{network=" + this.network
+                + ", dataOffset=" + this.dataOffset
+                + ", count=" + this.count
+                + ", error=" + this.error + '}';
+    }
+}
@@ -0,0 +1,199 @@
+package com.maxmind.db;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/*
+ * Parses IPv4 and IPv6 address literals without InetAddress.getByName, which
+ * allocates several objects per call and resolves anything that is not a
+ * literal as a hostname. Only literals are accepted:
+ *
+ * - IPv4 as a dotted quad of decimal numbers from 0 to 255, without leading
+ *   zeros, which some parsers read as octal.
+ * - IPv6 as up to eight groups of one to four hex digits, with at most one
+ *   "::", optionally ending in a dotted quad and optionally in brackets.
+ *   Zone indexes, such as "%eth0", are not accepted.
+ *
+ * IPv4-mapped IPv6 addresses, ::ffff:0:0/96, are returned as IPv4 addresses,
+ * as InetAddress.getByName returns them.
+ */
+final class IpAddressParser {
+
+    private IpAddressParser() {
+    }
+
+    /*
+     * Parses the literal into one of the two arrays, which must have 4 and
+     * 16 bytes, and returns the array it was parsed into.
+     */
+    static byte[] parse(CharSequence text, byte[] ipV4Address, byte[] ipV6Address) {
+        int start = 0;
+        int end = text.length();
+        boolean ipV6 = false;
+        for (int i = 0; i < end && !ipV6; i++) {
+            ipV6 = text.charAt(i) == ':';
+        }
+
+        if (!ipV6) {
+            if (!IpAddressParser.parseIpV4(text, start, end, ipV4Address, 0)) {
+                throw IpAddressParser.invalid(text);
+            }
+            return ipV4Address;
+        }
+
+        if (end >= 2 && text.charAt(0) == '[' && text.charAt(end - 1) == ']') {
+            start++;
+            end--;
+        }
+        if (!IpAddressParser.parseIpV6(text, start, end, ipV6Address)) {
+            throw IpAddressParser.invalid(text);
+        }
+        if (IpAddressParser.isIpV4Mapped(ipV6Address)) {
+            System.arraycopy(ipV6Address, 12, ipV4Address, 0, 4);
+            return ipV4Address;
+        }
+        return ipV6Address;
+    }
+
+    /*
+     * Returns an InetAddress for a parsed address, without sharing the array.
+     */
+    static InetAddress toInetAddress(byte[] rawAddress) {
+        try {
+            return InetAddress.getByAddress(rawAddress.clone());
+        } catch (UnknownHostException e) {
+            // Only thrown for addresses of the wrong length
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean parseIpV4(CharSequence text, int start, int end, byte[] address,
+                                     int offset) {
+        int part = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits > 0 && value == 0) {
+                    // A leading zero
+                    return false;
+                }
+                value = value * 10 + (c - '0');
+                if (value > 255) {
+                    return false;
+                }
+                digits++;
+            } else if (c == '.' && digits > 0 && part < 3) {
+                address[offset + part++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else {
+                return false;
+            }
+        }
+        if (digits == 0 || part != 3) {
+            return false;
+        }
+        address[offset + 3] = (byte) value;
+        return true;
+    }
+
+    private static boolean parseIpV6(CharSequence text, int start, int end, byte[] address) {
+        // The number of groups parsed, and the group the "::" is before, if
+        // there is one
+        int groups = 0;
+        int compressed = -1;
+        int i = start;
+        if (i < end && text.charAt(i) == ':') {
+            if (i + 1 == end || text.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = 0;
+            i += 2;
+        }
+
+        while (i < end) {
+            if (groups == 8) {
+                return false;
+            }
+            int groupStart = i;
+            int value = 0;
+            for (int digit; i < end && i - groupStart < 5
+                    && (digit = IpAddressParser.hexDigit(text.charAt(i))) >= 0; i++) {
+                value = value << 4 | digit;
+            }
+            if (i < end && text.charAt(i) == '.') {
+                // A dotted quad takes the place of the last two groups
+                if (groups > 6 || !IpAddressParser.parseIpV4(text, groupStart, end, address,
+                        2 * groups)) {
+                    return false;
+                }
+                groups += 2;
+                break;
+            }
+            int digits = i - groupStart;
+            if (digits == 0 || digits > 4) {
+                return false;
+            }
+            address[2 * groups] = (byte) (value >>> 8);
+            address[2 * groups + 1] = (byte) value;
+            groups++;
+
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':' || ++i == end) {
+                return false;
+            }
+            if (text.charAt(i) == ':') {
+                if (compressed >= 0) {
+                    return false;
+                }
+                compressed = groups;
+                i++;
+            }
+        }
+
+        if (compressed < 0) {
+            return groups == 8;
+        }
+        if (groups == 8) {
+            // "::" stands for at least one group of zeros
+            return false;
+        }
+        // Move the groups after the "::" to the end, and zero the gap
+        int tail = 2 * (groups - compressed);
+        System.arraycopy(address, 2 * compressed, address, 16 - tail, tail);
+        Arrays.fill(address, 2 * compressed, 16 - tail, (byte) 0);
+        return true;
+    }
+
+    // Character.digit would also accept digits of other scripts
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isIpV4Mapped(byte[] address) {
+        for (int i = 0; i < 10; i++) {
+            if (address[i] != 0) {
+                return false;
+            }
+        }
+        return address[10] == (byte) 0xFF && address[11] == (byte) 0xFF;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence text) {
+        return new IllegalArgumentException("'" + text + "' is not an IP address literal");
+    }
+}
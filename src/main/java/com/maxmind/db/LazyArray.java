@@ -0,0 +1,116 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * A read-only view of an array in the MaxMind DB that decodes its elements on
+ * demand. Decoded elements are memoised.
+ * </p>
+ * <p>
+ * A view, and any view obtained from it, <em>cannot</em> be shared between
+ * threads.
+ * </p>
+ */
+public final class LazyArray {
+
+    private final Decoder decoder;
+    private final int offset;
+    private final int entriesOffset;
+    private final int size;
+
+    private int[] elementOffsets;
+    private JsonElement[] elements;
+
+    LazyArray(Decoder decoder, int offset) throws InvalidDatabaseException {
+        this.decoder = decoder;
+        this.size = decoder.decodeContainerSize(offset, Decoder.Type.ARRAY);
+        this.offset = offset;
+        this.entriesOffset = decoder.position();
+    }
+
+    /**
+     * @return the number of elements in the array.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param index the index of the element.
+     * @return the decoded element.
+     * @throws IOException               if the element is invalid.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public JsonElement get(int index) throws IOException {
+        int elementOffset = this.elementOffset(index);
+        if (this.elements == null) {
+            this.elements = new JsonElement[this.size];
+        }
+        JsonElement element = this.elements[index];
+        if (element == null) {
+            element = this.decoder.decode(elementOffset);
+            this.elements[index] = element;
+        }
+        return element;
+    }
+
+    /**
+     * @param index the index of the element.
+     * @return a lazy view of the map at the index.
+     * @throws IOException               if the element is invalid.
+     * @throws IllegalStateException     if the element is not a map.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public LazyObject getObject(int index) throws IOException {
+        return new LazyObject(this.decoder, this.elementOffset(index));
+    }
+
+    /**
+     * @param index the index of the element.
+     * @return a lazy view of the array at the index.
+     * @throws IOException               if the element is invalid.
+     * @throws IllegalStateException     if the element is not an array.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public LazyArray getArray(int index) throws IOException {
+        return new LazyArray(this.decoder, this.elementOffset(index));
+    }
+
+    /**
+     * @return the whole array, decoded.
+     * @throws IOException if the array is invalid.
+     */
+    public JsonArray toJsonArray() throws IOException {
+        return this.decoder.decode(this.offset).getAsJsonArray();
+    }
+
+    private int elementOffset(int index) throws InvalidDatabaseException {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + this.size);
+        }
+        if (this.elementOffsets == null) {
+            int[] offsets = new int[this.size];
+            int current = this.entriesOffset;
+            for (int i = 0; i < this.size; i++) {
+                offsets[i] = current;
+                current = this.decoder.skip(current);
+            }
+            this.elementOffsets = offsets;
+        }
+        return this.elementOffsets[index];
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return this.toJsonArray().toString();
+        } catch (IOException e) {
+            return "LazyArray{offset=" + this.offset + "}";
+        }
+    }
+}
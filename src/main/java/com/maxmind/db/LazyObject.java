@@ -0,0 +1,152 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * A read-only view of a map in the MaxMind DB that decodes its values on
+ * demand. Looking up a key only compares the keys of the map in place and
+ * skips over the other values, so callers that need a few fields of a large
+ * record only pay for those fields. Decoded values are memoised.
+ * </p>
+ * <p>
+ * A view, and any view obtained from it, <em>cannot</em> be shared between
+ * threads.
+ * </p>
+ */
+public final class LazyObject {
+
+    private static final int MISSING = -1;
+
+    private final Decoder decoder;
+    private final int offset;
+    private final int entriesOffset;
+    private final int size;
+
+    private final Map<String, Integer> valueOffsets = new HashMap<>();
+    private final Map<String, JsonElement> values = new HashMap<>();
+
+    LazyObject(Decoder decoder, int offset) throws InvalidDatabaseException {
+        this.decoder = decoder;
+        this.size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        this.offset = offset;
+        this.entriesOffset = decoder.position();
+    }
+
+    /**
+     * @param key the key to look up.
+     * @return the decoded value for the key, or <code>null</code> if the map
+     * does not contain the key.
+     * @throws IOException if the data for the key is invalid.
+     */
+    public JsonElement get(String key) throws IOException {
+        JsonElement value = this.values.get(key);
+        if (value != null) {
+            return value;
+        }
+        int valueOffset = this.findValue(key);
+        if (valueOffset == MISSING) {
+            return null;
+        }
+        value = this.decoder.decode(valueOffset);
+        this.values.put(key, value);
+        return value;
+    }
+
+    /**
+     * @param key the key to look up.
+     * @return a lazy view of the map stored under the key, or
+     * <code>null</code> if the map does not contain the key.
+     * @throws IOException           if the data for the key is invalid.
+     * @throws IllegalStateException if the value is not a map.
+     */
+    public LazyObject getObject(String key) throws IOException {
+        int valueOffset = this.findValue(key);
+        if (valueOffset == MISSING) {
+            return null;
+        }
+        return new LazyObject(this.decoder, valueOffset);
+    }
+
+    /**
+     * @param key the key to look up.
+     * @return a lazy view of the array stored under the key, or
+     * <code>null</code> if the map does not contain the key.
+     * @throws IOException           if the data for the key is invalid.
+     * @throws IllegalStateException if the value is not an array.
+     */
+    public LazyArray getArray(String key) throws IOException {
+        int valueOffset = this.findValue(key);
+        if (valueOffset == MISSING) {
+            return null;
+        }
+        return new LazyArray(this.decoder, valueOffset);
+    }
+
+    /**
+     * @param key the key to look up.
+     * @return whether the map contains the key.
+     * @throws IOException if the map is invalid.
+     */
+    public boolean has(String key) throws IOException {
+        return this.findValue(key) != MISSING;
+    }
+
+    /**
+     * @return the number of entries in the map.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the keys of the map, in the order they are stored in the
+     * database. This decodes all of the keys, but none of the values.
+     * @throws IOException if the map is invalid.
+     */
+    public Set<String> keySet() throws IOException {
+        Set<String> keys = new LinkedHashSet<>();
+        int current = this.entriesOffset;
+        for (int i = 0; i < this.size; i++) {
+            keys.add(this.decoder.decode(current).getAsString());
+            current = this.decoder.skip(this.decoder.skip(current));
+        }
+        return keys;
+    }
+
+    /**
+     * @return the whole map, decoded.
+     * @throws IOException if the map is invalid.
+     */
+    public JsonObject toJsonObject() throws IOException {
+        return this.decoder.decode(this.offset).getAsJsonObject();
+    }
+
+    private int findValue(String key) throws IOException {
+        Integer cached = this.valueOffsets.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int valueOffset = this.decoder.findMapValue(this.entriesOffset,
+                this.size, key.getBytes(StandardCharsets.UTF_8));
+        this.valueOffsets.put(key, valueOffset);
+        return valueOffset;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return this.toJsonObject().toString();
+        } catch (IOException e) {
+            return "LazyObject{offset=" + this.offset + "}";
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.maxmind.db;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * The locales to take the names in the models from, in order of preference.
+ * Locales the database has no names in are dropped when the reader opens it,
+ * and the others are encoded once, so that finding a name is a single pass
+ * over the keys of a names map that compares them in place and decodes only
+ * the name it returns.
+ */
+final class Locales {
+
+    static final Locales ENGLISH = new Locales(Collections.singletonList("en"), null);
+
+    private static final int MISSING = -1;
+
+    private final List<String> locales;
+    private final byte[][] keys;
+
+    /*
+     * The database languages may be null if the metadata does not list them,
+     * in which case all of the locales are kept. If the database has names
+     * in none of the locales, its English names are used, or the names in
+     * its first language if it has none in English, rather than none.
+     */
+    Locales(List<String> locales, List<String> databaseLanguages) {
+        List<String> kept = new ArrayList<>(locales.size());
+        for (String locale : locales) {
+            if ((databaseLanguages == null || databaseLanguages.contains(locale))
+                    && !kept.contains(locale)) {
+                kept.add(locale);
+            }
+        }
+        if (kept.isEmpty() && databaseLanguages != null && !databaseLanguages.isEmpty()) {
+            kept.add(databaseLanguages.contains("en") ? "en" : databaseLanguages.get(0));
+        }
+        this.locales = Collections.unmodifiableList(kept);
+        this.keys = new byte[kept.size()][];
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = kept.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    List<String> asList() {
+        return this.locales;
+    }
+
+    /*
+     * Returns the offset of the name in the most preferred locale in the
+     * names map whose first entry is at entriesOffset, or -1 if it has none
+     * of the locales. The scan stops early at the most preferred locale.
+     */
+    int findName(Decoder decoder, int entriesOffset, int size)
+            throws InvalidDatabaseException {
+        int found = MISSING;
+        int foundRank = this.keys.length;
+        int offset = entriesOffset;
+        for (int i = 0; i < size && foundRank > 0; i++) {
+            int valueOffset = decoder.skip(offset);
+            for (int rank = 0; rank < foundRank; rank++) {
+                if (decoder.stringEquals(offset, this.keys[rank])) {
+                    found = valueOffset;
+                    foundRank = rank;
+                    break;
+                }
+            }
+            offset = decoder.skip(valueOffset);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,27 @@
+package com.maxmind.db;
+
+/**
+ * Receives the outcome of a {@link LookupFuture}.
+ *
+ * @param <T> the type of the result of the lookup.
+ */
+public interface LookupCallback<T> {
+
+    /**
+     * Called when the lookup completes.
+     *
+     * @param result the result of the lookup, which is <code>null</code> if
+     *               there is no data for the address.
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when the lookup fails or is cancelled.
+     *
+     * @param failure the reason the lookup failed, such as an
+     *                {@link java.io.IOException}, or a
+     *                {@link java.util.concurrent.CancellationException} if
+     *                it was cancelled.
+     */
+    void onFailure(Throwable failure);
+}
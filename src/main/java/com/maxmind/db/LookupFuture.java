@@ -0,0 +1,195 @@
+package com.maxmind.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>
+ * The pending result of a lookup by an {@link AsyncReader}. Besides blocking
+ * on it with {@link #get()}, callers can register a {@link LookupCallback}
+ * with {@link #addCallback(LookupCallback)}, which is called as soon as the
+ * result is known without tying up a thread in the meantime.
+ * </p>
+ * <p>
+ * Callbacks run on the thread that completes the lookup: a thread of the
+ * executor of the <code>AsyncReader</code>, or the thread that adds the
+ * callback if the lookup has already completed. Callbacks should therefore
+ * be quick, and hand longer work to an executor of their own. An exception
+ * thrown by a callback does not reach that thread's caller, nor keep the
+ * other callbacks from being called; it is passed to the thread's
+ * uncaught exception handler.
+ * </p>
+ *
+ * @param <T> the type of the result of the lookup.
+ */
+public final class LookupFuture<T> implements Future<T> {
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    // Guarded by this
+    private int state = PENDING;
+    private T result;
+    private Throwable failure;
+    private List<LookupCallback<? super T>> callbacks = new ArrayList<>(1);
+
+    LookupFuture() {
+    }
+
+    /**
+     * @param result the result of the lookup.
+     * @param <T>    the type of the result.
+     * @return a future that has already completed with the result.
+     */
+    public static <T> LookupFuture<T> completed(T result) {
+        LookupFuture<T> future = new LookupFuture<>();
+        future.complete(result);
+        return future;
+    }
+
+    /**
+     * @param failure the reason the lookup failed.
+     * @param <T>     the type of the result.
+     * @return a future that has already failed.
+     */
+    public static <T> LookupFuture<T> failed(Throwable failure) {
+        LookupFuture<T> future = new LookupFuture<>();
+        future.fail(failure);
+        return future;
+    }
+
+    /**
+     * Registers a callback for the outcome of the lookup. If the lookup has
+     * already completed, the callback is called right away on this thread.
+     *
+     * @param callback the callback.
+     */
+    public void addCallback(LookupCallback<? super T> callback) {
+        if (callback == null) {
+            throw new NullPointerException("Callback cannot be null");
+        }
+        synchronized (this) {
+            if (this.state == PENDING) {
+                this.callbacks.add(callback);
+                return;
+            }
+        }
+        this.call(callback);
+    }
+
+    /**
+     * Cancels the lookup if it has not completed. A lookup that an executor
+     * has not started yet is then skipped; one that is running is left to
+     * finish, and its result is discarded.
+     *
+     * @param mayInterruptIfRunning ignored, as lookups are not interrupted.
+     * @return whether the lookup was cancelled by this call.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return this.finish(CANCELLED, null, new CancellationException());
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return this.state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return this.state != PENDING;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (this.state == PENDING) {
+            this.wait();
+        }
+        return this.result();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (this.state == PENDING) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return this.result();
+    }
+
+    boolean complete(T result) {
+        return this.finish(SUCCEEDED, result, null);
+    }
+
+    boolean fail(Throwable failure) {
+        if (failure == null) {
+            throw new NullPointerException("Failure cannot be null");
+        }
+        return this.finish(FAILED, null, failure);
+    }
+
+    private boolean finish(int state, T result, Throwable failure) {
+        List<LookupCallback<? super T>> callbacks;
+        synchronized (this) {
+            if (this.state != PENDING) {
+                return false;
+            }
+            this.state = state;
+            this.result = result;
+            this.failure = failure;
+            callbacks = this.callbacks;
+            this.callbacks = null;
+            this.notifyAll();
+        }
+
+        for (LookupCallback<? super T> callback : callbacks) {
+            this.call(callback);
+        }
+        return true;
+    }
+
+    private void call(LookupCallback<? super T> callback) {
+        T result;
+        Throwable failure;
+        synchronized (this) {
+            result = this.result;
+            failure = this.failure;
+        }
+        try {
+            if (failure == null) {
+                callback.onSuccess(result);
+            } else {
+                callback.onFailure(failure);
+            }
+        } catch (RuntimeException e) {
+            // The thread may be a shared pool's or an event loop's, which a
+            // callback must not break, so report the exception without
+            // throwing it
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private T result() throws ExecutionException {
+        switch (this.state) {
+            case SUCCEEDED:
+                return this.result;
+            case CANCELLED:
+                throw new CancellationException();
+            default:
+                throw new ExecutionException(this.failure);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.maxmind.db;
+
+import com.maxmind.db.model.AsnResponse;
+import com.maxmind.db.model.City;
+import com.maxmind.db.model.CityResponse;
+import com.maxmind.db.model.Continent;
+import com.maxmind.db.model.Country;
+import com.maxmind.db.model.CountryResponse;
+import com.maxmind.db.model.Location;
+import com.maxmind.db.model.Postal;
+import com.maxmind.db.model.Subdivision;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Decodes the GeoIP2 models straight from the buffer. Only the fields the
+ * models hold are read: the keys of each map are compared in place, the
+ * values passed over are skipped, and no JsonElement is built. This is what
+ * the of(JsonElement) methods of the models read from a decoded record,
+ * without decoding the rest of it, such as the names in the languages not
+ * asked for. Names are taken from the first of the reader's locales that
+ * the names map has.
+ *
+ * A map that is missing from the record is left null in the model, as is a
+ * missing field.
+ */
+final class ModelDecoder {
+
+    private static final int MISSING = -1;
+
+    private static final byte[] CITY = ModelDecoder.utf8("city");
+    private static final byte[] COUNTRY = ModelDecoder.utf8("country");
+    private static final byte[] CONTINENT = ModelDecoder.utf8("continent");
+    private static final byte[] LOCATION = ModelDecoder.utf8("location");
+    private static final byte[] POSTAL = ModelDecoder.utf8("postal");
+    private static final byte[] SUBDIVISIONS = ModelDecoder.utf8("subdivisions");
+    private static final byte[] GEONAME_ID = ModelDecoder.utf8("geoname_id");
+    private static final byte[] ISO_CODE = ModelDecoder.utf8("iso_code");
+    private static final byte[] CODE = ModelDecoder.utf8("code");
+    private static final byte[] NAMES = ModelDecoder.utf8("names");
+    private static final byte[] LATITUDE = ModelDecoder.utf8("latitude");
+    private static final byte[] LONGITUDE = ModelDecoder.utf8("longitude");
+    private static final byte[] ACCURACY_RADIUS = ModelDecoder.utf8("accuracy_radius");
+    private static final byte[] TIME_ZONE = ModelDecoder.utf8("time_zone");
+    private static final byte[] AUTONOMOUS_SYSTEM_NUMBER =
+            ModelDecoder.utf8("autonomous_system_number");
+    private static final byte[] AUTONOMOUS_SYSTEM_ORGANIZATION =
+            ModelDecoder.utf8("autonomous_system_organization");
+
+    private ModelDecoder() {
+    }
+
+    static CountryResponse decodeCountryResponse(Decoder decoder, int offset,
+                                                 Locales locales) throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+
+        int country = decoder.findMapValue(entries, size, COUNTRY);
+        int continent = decoder.findMapValue(entries, size, CONTINENT);
+        return new CountryResponse(
+                country == MISSING ? null
+                        : ModelDecoder.decodeCountry(decoder, country, locales),
+                continent == MISSING ? null
+                        : ModelDecoder.decodeContinent(decoder, continent, locales));
+    }
+
+    static CityResponse decodeCityResponse(Decoder decoder, int offset, Locales locales)
+            throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+
+        int city = decoder.findMapValue(entries, size, CITY);
+        int continent = decoder.findMapValue(entries, size, CONTINENT);
+        int country = decoder.findMapValue(entries, size, COUNTRY);
+        int location = decoder.findMapValue(entries, size, LOCATION);
+        int postal = decoder.findMapValue(entries, size, POSTAL);
+        int subdivisions = decoder.findMapValue(entries, size, SUBDIVISIONS);
+        return new CityResponse(
+                city == MISSING ? null : ModelDecoder.decodeCity(decoder, city, locales),
+                continent == MISSING ? null
+                        : ModelDecoder.decodeContinent(decoder, continent, locales),
+                country == MISSING ? null
+                        : ModelDecoder.decodeCountry(decoder, country, locales),
+                location == MISSING ? null : ModelDecoder.decodeLocation(decoder, location),
+                postal == MISSING ? null : ModelDecoder.decodePostal(decoder, postal),
+                subdivisions == MISSING ? null
+                        : ModelDecoder.decodeSubdivisions(decoder, subdivisions, locales));
+    }
+
+    static AsnResponse decodeAsnResponse(Decoder decoder, int offset) throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+
+        int number = decoder.findMapValue(entries, size, AUTONOMOUS_SYSTEM_NUMBER);
+        String organization = ModelDecoder.stringField(decoder, entries, size,
+                AUTONOMOUS_SYSTEM_ORGANIZATION);
+        return new AsnResponse(number == MISSING ? null : decoder.decodeIntegerAt(number),
+                organization);
+    }
+
+    /*
+     * Returns the ISO code of the country of the record, without decoding
+     * the rest of the country, or null if there is none.
+     */
+    static String decodeCountryIsoCode(Decoder decoder, int offset) throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int country = decoder.findMapValue(decoder.position(), size, COUNTRY);
+        if (country == MISSING) {
+            return null;
+        }
+        size = decoder.decodeContainerSize(country, Decoder.Type.MAP);
+        return ModelDecoder.stringField(decoder, decoder.position(), size, ISO_CODE);
+    }
+
+    private static Country decodeCountry(Decoder decoder, int offset, Locales locales)
+            throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+
+        Integer geoNameId = ModelDecoder.integerField(decoder, entries, size, GEONAME_ID);
+        String isoCode = ModelDecoder.stringField(decoder, entries, size, ISO_CODE);
+        String name = ModelDecoder.name(decoder, entries, size, locales);
+        return new Country(isoCode, geoNameId, name);
+    }
+
+    private static Continent decodeContinent(Decoder decoder, int offset, Locales locales)
+            throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+
+        Integer geoNameId = ModelDecoder.integerField(decoder, entries, size, GEONAME_ID);
+        String code = ModelDecoder.stringField(decoder, entries, size, CODE);
+        String name = ModelDecoder.name(decoder, entries, size, locales);
+        return new Continent(name, geoNameId, code);
+    }
+
+    private static City decodeCity(Decoder decoder, int offset, Locales locales)
+            throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+
+        Integer geoNameId = ModelDecoder.integerField(decoder, entries, size, GEONAME_ID);
+        String name = ModelDecoder.name(decoder, entries, size, locales);
+        return new City(name, geoNameId);
+    }
+
+    private static Location decodeLocation(Decoder decoder, int offset) throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+
+        int latitude = decoder.findMapValue(entries, size, LATITUDE);
+        int longitude = decoder.findMapValue(entries, size, LONGITUDE);
+        Integer accuracyRadius = ModelDecoder.integerField(decoder, entries, size,
+                ACCURACY_RADIUS);
+        String timeZone = ModelDecoder.stringField(decoder, entries, size, TIME_ZONE);
+        return new Location(
+                latitude == MISSING ? null : decoder.decodeDoubleAt(latitude),
+                longitude == MISSING ? null : decoder.decodeDoubleAt(longitude),
+                accuracyRadius, timeZone);
+    }
+
+    private static Postal decodePostal(Decoder decoder, int offset) throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        return new Postal(ModelDecoder.stringField(decoder, decoder.position(), size, CODE));
+    }
+
+    private static List<Subdivision> decodeSubdivisions(Decoder decoder, int offset,
+                                                        Locales locales) throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.ARRAY);
+        List<Subdivision> subdivisions = new ArrayList<>(size);
+        int element = decoder.position();
+        for (int i = 0; i < size; i++) {
+            int next = decoder.skip(element);
+            subdivisions.add(ModelDecoder.decodeSubdivision(decoder, element, locales));
+            element = next;
+        }
+        return subdivisions;
+    }
+
+    private static Subdivision decodeSubdivision(Decoder decoder, int offset, Locales locales)
+            throws IOException {
+        int size = decoder.decodeContainerSize(offset, Decoder.Type.MAP);
+        int entries = decoder.position();
+
+        Integer geoNameId = ModelDecoder.integerField(decoder, entries, size, GEONAME_ID);
+        String isoCode = ModelDecoder.stringField(decoder, entries, size, ISO_CODE);
+        String name = ModelDecoder.name(decoder, entries, size, locales);
+        return new Subdivision(isoCode, geoNameId, name);
+    }
+
+    private static String name(Decoder decoder, int entries, int size, Locales locales)
+            throws IOException {
+        int names = decoder.findMapValue(entries, size, NAMES);
+        if (names == MISSING) {
+            return null;
+        }
+        int namesSize = decoder.decodeContainerSize(names, Decoder.Type.MAP);
+        int name = locales.findName(decoder, decoder.position(), namesSize);
+        return name == MISSING ? null : decoder.decodeStringAt(name);
+    }
+
+    private static String stringField(Decoder decoder, int entries, int size, byte[] key)
+            throws IOException {
+        int value = decoder.findMapValue(entries, size, key);
+        return value == MISSING ? null : decoder.decodeStringAt(value);
+    }
+
+    private static Integer integerField(Decoder decoder, int entries, int size, byte[] key)
+            throws IOException {
+        int value = decoder.findMapValue(entries, size, key);
+        return value == MISSING ? null : (int) decoder.decodeIntegerAt(value);
+    }
+
+    private static byte[] utf8(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -59,6 +59,14 @@ public final class Network {
         return prefixLength;
     }
 
+    /**
+     * @return the network as a {@link CompactNetwork}, which holds the
+     * address as numbers.
+     */
+    public CompactNetwork toCompactNetwork() {
+        return CompactNetwork.of(ipAddress, prefixLength);
+    }
+
     /***
      * @return A string representation of the network in CIDR notation, e.g.,
      * <code>1.2.3.0/24</code> or <code>2001::/8</code>.
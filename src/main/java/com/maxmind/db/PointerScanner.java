@@ -0,0 +1,110 @@
+package com.maxmind.db;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/*
+ * Finds the values in the data section that the most pointers point to.
+ *
+ * The data section is a sequence of values, with the entries of each map and
+ * array inline after it, so a single pass over the value headers sees every
+ * pointer in the database. A few values, such as the countries, continents
+ * and their names, are the targets of most of them; these are the values
+ * worth having in the cache before the first lookup.
+ */
+final class PointerScanner {
+
+    private static final int EMPTY = -1;
+
+    // An open-addressing table from pointer target to the number of pointers
+    // to it
+    private int[] targets = PointerScanner.emptyTable(1 << 12);
+    private int[] counts = new int[1 << 12];
+    private int size;
+
+    private PointerScanner() {
+    }
+
+    /*
+     * Returns up to count offsets between start and end that the most
+     * pointers point to, most referenced first.
+     */
+    static int[] mostReferenced(Decoder decoder, int start, int end, int count)
+            throws InvalidDatabaseException {
+        PointerScanner scanner = new PointerScanner();
+        int offset = start;
+        while (offset < end) {
+            int target = decoder.resolvePointer(offset);
+            if (target != offset) {
+                scanner.increment(target);
+            }
+            offset = decoder.nextInSequence(offset);
+        }
+        return scanner.top(count);
+    }
+
+    private void increment(int target) {
+        int mask = this.targets.length - 1;
+        int i = PointerScanner.hash(target) & mask;
+        while (this.targets[i] != EMPTY && this.targets[i] != target) {
+            i = (i + 1) & mask;
+        }
+        if (this.targets[i] == EMPTY) {
+            this.targets[i] = target;
+            this.size++;
+        }
+        this.counts[i]++;
+        if (this.size > this.targets.length / 2) {
+            this.grow();
+        }
+    }
+
+    private void grow() {
+        int[] oldTargets = this.targets;
+        int[] oldCounts = this.counts;
+        this.targets = PointerScanner.emptyTable(oldTargets.length * 2);
+        this.counts = new int[oldCounts.length * 2];
+        int mask = this.targets.length - 1;
+        for (int j = 0; j < oldTargets.length; j++) {
+            if (oldTargets[j] == EMPTY) {
+                continue;
+            }
+            int i = PointerScanner.hash(oldTargets[j]) & mask;
+            while (this.targets[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            this.targets[i] = oldTargets[j];
+            this.counts[i] = oldCounts[j];
+        }
+    }
+
+    private int[] top(int count) {
+        // A min-heap of the best so far, packed as count then offset
+        PriorityQueue<Long> best = new PriorityQueue<>();
+        for (int i = 0; i < this.targets.length; i++) {
+            if (this.targets[i] == EMPTY) {
+                continue;
+            }
+            best.add(((long) this.counts[i] << 32) | this.targets[i]);
+            if (best.size() > count) {
+                best.poll();
+            }
+        }
+        int[] top = new int[best.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = (int) (long) best.poll();
+        }
+        return top;
+    }
+
+    private static int[] emptyTable(int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(int target) {
+        int h = target * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
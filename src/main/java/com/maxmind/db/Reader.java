@@ -2,8 +2,14 @@ package com.maxmind.db;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.maxmind.db.cache.CacheStats;
+import com.maxmind.db.cache.InstrumentedCache;
 import com.maxmind.db.cache.NoCache;
 import com.maxmind.db.cache.NodeCache;
+import com.maxmind.db.cache.PinnableCache;
+import com.maxmind.db.cache.ReloadableCache;
+import com.maxmind.db.model.AsnResponse;
+import com.maxmind.db.model.CityResponse;
 import com.maxmind.db.model.CountryResponse;
 
 import java.io.Closeable;
@@ -12,6 +18,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -25,10 +39,19 @@ public class Reader implements GeoIp2Provider, Closeable {
             (byte) 0xCD, (byte) 0xEF, 'M', 'a', 'x', 'M', 'i', 'n', 'd', '.',
             'c', 'o', 'm'};
 
+    // The offset findRecord returns for an address without data
+    static final int NO_DATA = -1;
+
     private final int ipV4Start;
     private final Metadata metadata;
     private final AtomicReference<BufferHolder> bufferHolderReference;
     private final NodeCache cache;
+    private final int maxDecodeDepth;
+    private final boolean cacheRecords;
+    private final HotSetTracker hotSet;
+    private final Locales locales;
+    private final CountryResponseTable countryResponses;
+    private final DecoderPool decoderPool = new DecoderPool();
 
     /**
      * The file mode to use when opening a MaxMind DB.
@@ -91,7 +114,7 @@ public class Reader implements GeoIp2Provider, Closeable {
      * @throws IOException if there is an error reading from the Stream.
      */
     public Reader(InputStream source, NodeCache cache) throws IOException {
-        this(new BufferHolder(source), "<InputStream>", cache);
+        this(new Builder(source).withCache(cache));
     }
 
     /**
@@ -118,25 +141,460 @@ public class Reader implements GeoIp2Provider, Closeable {
      * @throws IOException if there is an error opening or reading from the file.
      */
     public Reader(File database, FileMode fileMode, NodeCache cache) throws IOException {
-        this(new BufferHolder(database, fileMode), database.getName(), cache);
+        this(new Builder(database).fileMode(fileMode).withCache(cache));
+    }
+
+    private Reader(Builder builder) throws IOException {
+        this(builder.openBuffer(), builder.name(), builder);
     }
 
-    private Reader(BufferHolder bufferHolder, String name, NodeCache cache) throws IOException {
+    private Reader(BufferHolder bufferHolder, String name, Builder builder) throws IOException {
         this.bufferHolderReference = new AtomicReference<>(
                 bufferHolder);
 
-        if (cache == null) {
+        if (builder.cache == null) {
             throw new NullPointerException("Cache cannot be null");
         }
-        this.cache = cache;
+        this.maxDecodeDepth = builder.maxDecodeDepth;
+        this.cacheRecords = builder.cacheRecords;
+        this.hotSet = builder.hotSetSize == 0 ? null
+                : new HotSetTracker(builder.hotSetSize, builder.hotSetSampleInterval);
 
         ByteBuffer buffer = bufferHolder.get();
         int start = this.findMetadataStart(buffer, name);
 
-        Decoder metadataDecoder = new Decoder(this.cache, buffer, start);
+        // The metadata is only decoded once, so it does not go through the
+        // cache.
+        Decoder metadataDecoder = new Decoder(NoCache.getInstance(), buffer, start);
         this.metadata = new Metadata((JsonObject) metadataDecoder.decode(start));
 
+        if (builder.cache instanceof ReloadableCache) {
+            this.cache = ((ReloadableCache) builder.cache)
+                    .forDatabase(this.databaseId(buffer));
+        } else {
+            this.cache = builder.cache;
+        }
+
         this.ipV4Start = this.findIpV4StartNode(buffer);
+
+        this.locales = new Locales(builder.locales, this.metadata.getLanguages());
+        this.countryResponses = builder.prebuildCountries
+                ? CountryResponseTable.build(this.newDecoder(buffer),
+                this.dataOffsets(buffer), this.locales)
+                : null;
+
+        if (!(this.cache instanceof NoCache)
+                && (builder.preloadCount > 0 || !builder.warmUpAddresses.isEmpty())) {
+            this.startWarmUp(start - METADATA_START_MARKER.length,
+                    builder.preloadCount, builder.warmUpAddresses);
+        }
+    }
+
+    /*
+     * Receives the networks of the search tree from walkTree, in address
+     * order. Addresses are given as 128 bits, starting with the most
+     * significant bit of high, so that an IPv4 address is in the top 32 bits
+     * of high.
+     */
+    interface NetworkVisitor {
+        /*
+         * Called for each network with the offset of its record, or NO_DATA.
+         * The decoder can be used to decode the record.
+         */
+        void visitNetwork(Decoder decoder, long high, long low, int prefixLength,
+                          int offset) throws IOException;
+
+        /*
+         * Called instead of walking the IPv4 subtree again where an IPv6
+         * network leads to it, such as ::ffff:0:0/96. The networks below it
+         * are those of the IPv4 address in the 32 bits after the prefix.
+         */
+        void visitIpV4Tree(long high, long low, int prefixLength) throws IOException;
+    }
+
+    /*
+     * Walks the IPv4 or the IPv6 part of the search tree, calling the visitor
+     * for every network in it in address order. The networks cover the whole
+     * address space, and are the ones that lookups find: the IPv4 part starts
+     * at the node IPv4 lookups start at.
+     */
+    void walkTree(boolean ipV4, NetworkVisitor visitor) throws IOException {
+        int bitLength = ipV4 ? 32 : 128;
+        Decoder decoder = this.acquireDecoder();
+        try {
+            this.walkTree(decoder, this.startNode(bitLength), 0, bitLength, 0, 0,
+                    visitor);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    private void walkTree(Decoder decoder, int record, int depth, int bitLength,
+                          long high, long low, NetworkVisitor visitor) throws IOException {
+        int nodeCount = this.metadata.getNodeCount();
+        if (record >= nodeCount || depth == bitLength) {
+            // As in findRecord, a node that the address runs out at is no data
+            visitor.visitNetwork(decoder, high, low, depth, record > nodeCount
+                    ? this.resolveDataOffset(decoder.getBuffer(), record)
+                    : NO_DATA);
+            return;
+        }
+        if (bitLength == 128 && this.metadata.getIpVersion() == 6
+                && record == this.ipV4Start && depth > 0 && depth <= 96) {
+            visitor.visitIpV4Tree(high, low, depth);
+            return;
+        }
+        long bit = depth < 64 ? 1L << (63 - depth) : 1L << (127 - depth);
+        this.walkTree(decoder, this.readNode(decoder.getBuffer(), record, 0),
+                depth + 1, bitLength, high, low, visitor);
+        this.walkTree(decoder, this.readNode(decoder.getBuffer(), record, 1),
+                depth + 1, bitLength, depth < 64 ? high | bit : high,
+                depth < 64 ? low : low | bit, visitor);
+    }
+
+    /*
+     * Returns the offsets of all of the records that the search tree points
+     * to, sorted and without duplicates.
+     */
+    private int[] dataOffsets(ByteBuffer buffer) throws InvalidDatabaseException {
+        int nodeCount = this.metadata.getNodeCount();
+        int[] offsets = new int[16];
+        int size = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            for (int index = 0; index < 2; index++) {
+                int record = this.readNode(buffer, node, index);
+                if (record <= nodeCount) {
+                    continue;
+                }
+                if (size == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, size * 2);
+                }
+                offsets[size++] = this.resolveDataOffset(buffer, record);
+            }
+        }
+        Arrays.sort(offsets, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || offsets[i] != offsets[distinct - 1]) {
+                offsets[distinct++] = offsets[i];
+            }
+        }
+        return Arrays.copyOf(offsets, distinct);
+    }
+
+    /*
+     * Identifies the contents of the database, for reusing a cache across
+     * reloads of the same file.
+     */
+    private String databaseId(ByteBuffer buffer) {
+        CRC32 checksum = new CRC32();
+        byte[] chunk = new byte[1 << 16];
+        buffer.position(0);
+        while (buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            checksum.update(chunk, 0, length);
+        }
+        return this.metadata.getDatabaseType()
+                + '/' + this.metadata.getBuildDate().getTime()
+                + '/' + buffer.capacity()
+                + '/' + Long.toHexString(checksum.getValue());
+    }
+
+    /*
+     * Warms up the cache on a background thread, so that it is warm before
+     * the first lookups. This first loads the values that the most pointers
+     * in the data section point to, and then looks up the given addresses.
+     */
+    private void startWarmUp(final int dataSectionEnd, final int preloadCount,
+                             final List<InetAddress> addresses) {
+        final Decoder decoder = this.newDecoder(this.bufferHolderReference.get().get());
+        final int dataSectionStart = this.metadata.getSearchTreeSize()
+                + DATA_SECTION_SEPARATOR_SIZE;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int[] offsets = preloadCount == 0 ? new int[0]
+                            : PointerScanner.mostReferenced(decoder,
+                            dataSectionStart, dataSectionEnd, preloadCount);
+                    for (int offset : offsets) {
+                        if (Reader.this.bufferHolderReference.get() == null) {
+                            return;
+                        }
+                        decoder.preload(offset);
+                    }
+                    for (InetAddress address : addresses) {
+                        if (Reader.this.bufferHolderReference.get() == null) {
+                            return;
+                        }
+                        Reader.this.getRecord(address);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Best effort only. The lookups that need the bad data
+                    // report the error.
+                }
+            }
+        }, "maxmind-db-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * <p>
+     * Constructs a Reader with options that the constructors do not cover.
+     * </p>
+     * <pre>
+     * Reader reader = new Reader.Builder(database)
+     *         .withCache(new CHMCache())
+     *         .build();
+     * </pre>
+     */
+    public static final class Builder {
+        private final File database;
+        private final InputStream source;
+
+        private FileMode fileMode = FileMode.MEMORY_MAPPED;
+        private NodeCache cache = NoCache.getInstance();
+        private int maxDecodeDepth = Decoder.DEFAULT_MAX_DEPTH;
+        private boolean cacheRecords;
+        private int preloadCount;
+        private List<InetAddress> warmUpAddresses = Collections.emptyList();
+        private int hotSetSize;
+        private boolean prebuildCountries;
+        private List<String> locales = Locales.ENGLISH.asList();
+        private int hotSetSampleInterval;
+
+        /**
+         * @param database the MaxMind DB file to use.
+         */
+        public Builder(File database) {
+            this.database = database;
+            this.source = null;
+        }
+
+        /**
+         * @param source the InputStream that contains the MaxMind DB file. The
+         *               database is read into memory, as if in mode
+         *               {@link FileMode#MEMORY}.
+         */
+        public Builder(InputStream source) {
+            this.database = null;
+            this.source = source;
+        }
+
+        /**
+         * @param fileMode the mode to open the file with. The default is
+         *                 {@link FileMode#MEMORY_MAPPED}.
+         * @return this builder.
+         * @throws IllegalArgumentException if the builder reads from an
+         *                                  InputStream and the mode is not
+         *                                  {@link FileMode#MEMORY}.
+         */
+        public Builder fileMode(FileMode fileMode) {
+            if (this.database == null && fileMode != FileMode.MEMORY) {
+                throw new IllegalArgumentException(
+                        "Only FileMode.MEMORY is supported when using an InputStream.");
+            }
+            this.fileMode = fileMode;
+            return this;
+        }
+
+        /**
+         * @param cache backing cache instance. The default is no caching. A
+         *              {@link ReloadableCache} is kept warm across reloads of
+         *              the same database.
+         * @return this builder.
+         */
+        public Builder withCache(NodeCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * @param maxDecodeDepth the deepest that maps, arrays and pointers in
+         *                       the data section may nest. Data that nests
+         *                       deeper is rejected with an
+         *                       {@link InvalidDatabaseException}, which
+         *                       protects against corrupt or hostile files.
+         *                       The default is 512.
+         * @return this builder.
+         */
+        public Builder maxDecodeDepth(int maxDecodeDepth) {
+            if (maxDecodeDepth < 1) {
+                throw new IllegalArgumentException(
+                        "The maximum decode depth must be positive: " + maxDecodeDepth);
+            }
+            this.maxDecodeDepth = maxDecodeDepth;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Whether whole records are cached as well as the values they point
+         * to. Records are cached by their offset in the database, in the same
+         * cache, so a record shared by many networks is only decoded once.
+         * The default is <code>false</code>.
+         * </p>
+         * <p>
+         * Each lookup still gets its own copy of the record's maps and
+         * arrays, which costs about as much as decoding a record whose larger
+         * parts are pointers into the cache. This pays off for databases with
+         * large records that store most of their data inline, given a cache
+         * big enough to hold the hot records.
+         * </p>
+         *
+         * @param cacheRecords whether to cache whole records.
+         * @return this builder.
+         */
+        public Builder cacheRecords(boolean cacheRecords) {
+            this.cacheRecords = cacheRecords;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Warms up the cache in the background once the database is open. A
+         * background thread reads through the data section, counting which
+         * values pointers point to, and loads the values that the most
+         * pointers point to into the cache. In GeoIP2 databases these are the
+         * countries, continents and the like that most records share.
+         * </p>
+         * <p>
+         * The scan reads the whole data section once, which for a memory
+         * mapped database also pages it in. Nothing is preloaded with the
+         * default of no caching.
+         * </p>
+         *
+         * @param preloadCount the number of values to preload, which should
+         *                     not be more than the cache holds. The default
+         *                     is 0, which preloads nothing.
+         * @return this builder.
+         */
+        public Builder preloadCache(int preloadCount) {
+            if (preloadCount < 0) {
+                throw new IllegalArgumentException(
+                        "The preload count must not be negative: " + preloadCount);
+            }
+            this.preloadCount = preloadCount;
+            return this;
+        }
+
+        /**
+         * Warms up the cache in the background once the database is open,
+         * by looking up the given addresses. When a database is reloaded,
+         * addresses that were looked up recently through the old reader make
+         * the new reader's cache hold what the traffic needs. The lookups
+         * run after any values requested with {@link #preloadCache(int)} are
+         * loaded. Nothing is warmed up with the default of no caching.
+         *
+         * @param addresses the addresses to look up.
+         * @return this builder.
+         */
+        public Builder warmUp(Collection<InetAddress> addresses) {
+            this.warmUpAddresses = new ArrayList<>(addresses);
+            return this;
+        }
+
+        /**
+         * The locales to take the names in the models from, in order of
+         * preference. A name is taken from the first locale that the
+         * database has a name in for the place; if it has none of them, the
+         * name is <code>null</code>. Locales that the database lists no names
+         * for in {@link Metadata#getLanguages()} are dropped when it is
+         * opened. If that drops all of them, the names are taken from
+         * <code>en</code> instead, or from the first language of the
+         * database if it has no English names. The default is
+         * <code>en</code> alone.
+         *
+         * @param locales the locales, such as <code>pt-BR</code> or
+         *                <code>zh-CN</code>, in order of preference.
+         * @return this builder.
+         */
+        public Builder locales(List<String> locales) {
+            if (locales.isEmpty()) {
+                throw new IllegalArgumentException("At least one locale is required");
+            }
+            this.locales = new ArrayList<>(locales);
+            return this;
+        }
+
+        /**
+         * <p>
+         * Whether to build the {@link CountryResponse} of every record when
+         * the database is opened. {@link Reader#getCountry(InetAddress)} then
+         * returns these shared instances rather than decoding a new one, and
+         * allocates nothing for the response. Responses with the same
+         * country or continent share the same instance of it. The default is
+         * <code>false</code>.
+         * </p>
+         * <p>
+         * This reads the whole search tree and every record once when the
+         * database is opened, and keeps a response for every record. It is
+         * meant for Country databases, which have a few thousand records, and
+         * not for City databases, which have millions.
+         * </p>
+         *
+         * @param prebuildCountries whether to build the responses up front.
+         * @return this builder.
+         */
+        public Builder prebuildCountries(boolean prebuildCountries) {
+            this.prebuildCountries = prebuildCountries;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Tracks the networks and records that are looked up most. A sample
+         * of the lookups is counted in a fixed number of counters, which
+         * finds the hot set with little overhead however much the traffic
+         * varies. The hot set is available from
+         * {@link Reader#getHotNetworks()} and {@link Reader#getHotRecords()},
+         * and {@link Reader#pinHotSet()} pins it in the cache. Any network or
+         * record that makes up more than one in <code>size</code> of the
+         * sampled lookups is certain to be in it.
+         * </p>
+         * <p>
+         * The counters are shared by the threads looking up addresses, so a
+         * larger sample interval makes for less contention. The hot set is
+         * not tracked by default.
+         * </p>
+         *
+         * @param size           the number of networks and of records to
+         *                       track.
+         * @param sampleInterval counts one in this many lookups, on average.
+         *                       1 counts every lookup.
+         * @return this builder.
+         */
+        public Builder trackHotSet(int size, int sampleInterval) {
+            if (size <= 0 || sampleInterval <= 0) {
+                throw new IllegalArgumentException(
+                        "The size and sample interval must be positive");
+            }
+            this.hotSetSize = size;
+            this.hotSetSampleInterval = sampleInterval;
+            return this;
+        }
+
+        /**
+         * @return a Reader for the database.
+         * @throws IOException if there is an error opening or reading from the
+         *                     database.
+         */
+        public Reader build() throws IOException {
+            return new Reader(this);
+        }
+
+        private BufferHolder openBuffer() throws IOException {
+            if (this.database != null) {
+                return new BufferHolder(this.database, this.fileMode);
+            }
+            return new BufferHolder(this.source);
+        }
+
+        private String name() {
+            return this.database != null ? this.database.getName() : "<InputStream>";
+        }
     }
 
     /**
@@ -161,10 +619,291 @@ public class Reader implements GeoIp2Provider, Closeable {
      */
     public Record getRecord(InetAddress ipAddress)
             throws IOException {
-        ByteBuffer buffer = this.getBufferHolder().get();
+        Decoder decoder = this.acquireDecoder();
+        try {
+            return this.decodeRecord(decoder, ipAddress,
+                    this.findRecord(decoder.getBuffer(), ipAddress));
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    /**
+     * Looks up an IP address given as a literal, such as
+     * <code>"1.2.3.4"</code> or <code>"2001:db8::1"</code>, in the MaxMind
+     * DB. The literal is parsed without {@link InetAddress#getByName(String)},
+     * and without allocating, and hostnames are rejected rather than
+     * resolved. IPv4 addresses must be dotted quads without leading zeros,
+     * and IPv6 addresses may be in brackets but have no zone index.
+     *
+     * @param ipAddress the IP address literal to look up.
+     * @return the record data for the IP address, or <code>null</code> if
+     * there is no data for the address.
+     * @throws IOException              if a file I/O error occurs.
+     * @throws IllegalArgumentException if <code>ipAddress</code> is not an
+     *                                  IPv4 or IPv6 address literal.
+     */
+    public JsonElement getByLiteral(CharSequence ipAddress) throws IOException {
+        Decoder decoder = this.acquireDecoder();
+        try {
+            int offset = (int) this.findRecord(decoder.getBuffer(), null,
+                    decoder.parseAddress(ipAddress));
+            return offset == NO_DATA ? null : this.decodeData(decoder, offset);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    /**
+     * Looks up an IP address given as a literal in the MaxMind DB. The
+     * literal is parsed as {@link #getByLiteral(CharSequence)} parses it.
+     *
+     * @param ipAddress the IP address literal to look up.
+     * @return the record for the IP address. If there is no data for the
+     * address, the non-null {@link Record} will still be returned.
+     * @throws IOException              if a file I/O error occurs.
+     * @throws IllegalArgumentException if <code>ipAddress</code> is not an
+     *                                  IPv4 or IPv6 address literal.
+     */
+    public Record getRecordByLiteral(CharSequence ipAddress) throws IOException {
+        Decoder decoder = this.acquireDecoder();
+        try {
+            byte[] rawAddress = decoder.parseAddress(ipAddress);
+            InetAddress address = IpAddressParser.toInetAddress(rawAddress);
+            return this.decodeRecord(decoder, address,
+                    this.findRecord(decoder.getBuffer(), address, rawAddress));
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    /*
+     * The methods below finish a lookup that was started with
+     * findRecord(InetAddress). AsyncReader searches the tree on the calling
+     * thread, answers from these if it can without decoding, and decodes on
+     * its executor otherwise.
+     */
+
+    long findRecord(InetAddress ipAddress) throws IOException {
+        // The pooled decoder's buffer, as the buffer holder hands out
+        // duplicates under a lock that the calling thread must not wait for
+        Decoder decoder = this.acquireDecoder();
+        try {
+            return this.findRecord(decoder.getBuffer(), ipAddress);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    Record getRecord(InetAddress ipAddress, long result) throws IOException {
+        Decoder decoder = this.acquireDecoder();
+        try {
+            return this.decodeRecord(decoder, ipAddress, result);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    /*
+     * Returns the record without decoding it if there is no data for the
+     * address or the record is cached, and null otherwise.
+     */
+    Record getCachedRecord(InetAddress ipAddress, long result) throws IOException {
+        int offset = (int) result;
+        JsonElement dataRecord = null;
+        if (offset != NO_DATA) {
+            if (!this.cacheRecords) {
+                return null;
+            }
+            Decoder decoder = this.acquireDecoder();
+            try {
+                dataRecord = decoder.decodeRecordIfCached(offset);
+            } finally {
+                this.releaseDecoder(decoder);
+            }
+            if (dataRecord == null) {
+                return null;
+            }
+        }
+        return new Record(dataRecord, ipAddress, (int) (result >>> 32));
+    }
+
+    CountryResponse getCountry(long result) throws IOException {
+        Decoder decoder = this.acquireDecoder();
+        try {
+            return this.decodeCountry(decoder, (int) result);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
 
+    /*
+     * Returns the prebuilt response for the record, or null if there is none.
+     */
+    CountryResponse getPrebuiltCountry(long result) {
+        if (this.countryResponses == null || (int) result == NO_DATA) {
+            return null;
+        }
+        return this.countryResponses.get((int) result);
+    }
+
+    CityResponse getCity(long result) throws IOException {
+        int offset = (int) result;
+        if (offset == NO_DATA) {
+            return null;
+        }
+        Decoder decoder = this.acquireDecoder();
+        try {
+            return ModelDecoder.decodeCityResponse(decoder, offset, this.locales);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    AsnResponse getAsn(long result) throws IOException {
+        int offset = (int) result;
+        if (offset == NO_DATA) {
+            return null;
+        }
+        Decoder decoder = this.acquireDecoder();
+        try {
+            return ModelDecoder.decodeAsnResponse(decoder, offset);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    private Record decodeRecord(Decoder decoder, InetAddress ipAddress, long result)
+            throws IOException {
+        int offset = (int) result;
+        JsonElement dataRecord = null;
+        if (offset != NO_DATA) {
+            dataRecord = this.decodeData(decoder, offset);
+        }
+        return new Record(dataRecord, ipAddress, (int) (result >>> 32));
+    }
+
+    /*
+     * Decodes the record at the offset, through the cache if whole records
+     * are cached.
+     */
+    JsonElement decodeData(Decoder decoder, int offset) throws IOException {
+        return this.cacheRecords
+                ? decoder.decodeRecord(offset)
+                : decoder.decode(offset);
+    }
+
+    /*
+     * Returns the offset of the record for the address, or NO_DATA, in the
+     * low half, and the prefix length of the network it was found in in the
+     * high half. Packing them keeps a lookup from allocating for them.
+     */
+    private long findRecord(ByteBuffer buffer, InetAddress ipAddress)
+            throws InvalidDatabaseException {
+        return this.findRecord(buffer, ipAddress, ipAddress.getAddress());
+    }
+
+    /*
+     * As findRecord(ByteBuffer, InetAddress), for an address that may only be
+     * known as bytes, in which case ipAddress is null.
+     */
+    private long findRecord(ByteBuffer buffer, InetAddress ipAddress, byte[] rawAddress)
+            throws InvalidDatabaseException {
+        return this.recordFound(buffer, ipAddress, rawAddress,
+                this.traverseTree(buffer, rawAddress));
+    }
+
+    /*
+     * Searches the trees of several readers for the same address together,
+     * a level at a time. Each step of a search waits for a read from memory
+     * that the next step depends on; interleaving the searches lets those
+     * reads overlap. The results are those of findRecord, one for each
+     * reader, and each search uses the buffer of its decoder.
+     */
+    static void findRecords(Reader[] readers, Decoder[] decoders, InetAddress ipAddress,
+                            long[] results) throws InvalidDatabaseException {
         byte[] rawAddress = ipAddress.getAddress();
+        int bitLength = rawAddress.length * 8;
+        int count = readers.length;
+        int[] records = new int[count];
+        int[] prefixLengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            records[i] = readers[i].startNode(bitLength);
+        }
+
+        boolean searching = true;
+        for (int pl = 0; pl < bitLength && searching; pl++) {
+            int bit = 1 & ((0xFF & rawAddress[pl / 8]) >> 7 - (pl % 8));
+            searching = false;
+            for (int i = 0; i < count; i++) {
+                int nodeCount = readers[i].metadata.getNodeCount();
+                if (records[i] < nodeCount) {
+                    records[i] = readers[i].readNode(decoders[i].getBuffer(), records[i], bit);
+                    prefixLengths[i] = pl + 1;
+                    searching |= records[i] < nodeCount;
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            results[i] = readers[i].recordFound(decoders[i].getBuffer(), ipAddress,
+                    rawAddress, (long) prefixLengths[i] << 32 | (0xFFFFFFFFL & records[i]));
+        }
+    }
+
+    /*
+     * Turns the result of traverseTree into the result of findRecord. The
+     * InetAddress is only created here, if it is null, for a sampled lookup.
+     */
+    private long recordFound(ByteBuffer buffer, InetAddress ipAddress, byte[] rawAddress,
+                             long result) throws InvalidDatabaseException {
+        int record = (int) result;
+        int pl = (int) (result >>> 32);
+        int offset = NO_DATA;
+        if (record > this.metadata.getNodeCount()) {
+            // record is a data pointer
+            offset = this.resolveDataOffset(buffer, record);
+            if (this.hotSet != null && this.hotSet.sample()) {
+                if (ipAddress == null) {
+                    ipAddress = IpAddressParser.toInetAddress(rawAddress);
+                }
+                this.hotSet.record(HotSetTracker.networkKey(rawAddress, pl),
+                        ipAddress, pl, offset);
+            }
+        }
+        return (long) pl << 32 | (0xFFFFFFFFL & offset);
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> in the MaxMind DB and returns a lazy
+     * view of its record. Only the fields read through the view are decoded,
+     * which makes this cheaper than {@link #get(InetAddress)} for callers
+     * that only need a few fields of a large record. The view is not
+     * thread-safe.
+     *
+     * @param ipAddress the IP address to look up.
+     * @return a view of the record for the IP address, or <code>null</code>
+     * if there is no data for the address.
+     * @throws IOException           if a file I/O error occurs.
+     * @throws IllegalStateException if the record is not a map.
+     */
+    public LazyObject getLazy(InetAddress ipAddress) throws IOException {
+        ByteBuffer buffer = this.getBufferHolder().get();
+
+        int record = (int) this.traverseTree(buffer, ipAddress.getAddress());
+        if (record <= this.metadata.getNodeCount()) {
+            return null;
+        }
+        return new LazyObject(this.newDecoder(buffer),
+                this.resolveDataOffset(buffer, record));
+    }
 
+    /*
+     * Returns the record the search for the address ends at in the low half,
+     * and the prefix length of the network it was found in in the high half.
+     */
+    private long traverseTree(ByteBuffer buffer, byte[] rawAddress)
+            throws InvalidDatabaseException {
         int bitLength = rawAddress.length * 8;
         int record = this.startNode(bitLength);
         int nodeCount = this.metadata.getNodeCount();
@@ -175,24 +914,93 @@ public class Reader implements GeoIp2Provider, Closeable {
             int bit = 1 & (b >> 7 - (pl % 8));
             record = this.readNode(buffer, record, bit);
         }
-
-        JsonElement dataRecord = null;
-        if (record > nodeCount) {
-            // record is a data pointer
-            dataRecord = this.resolveDataPointer(buffer, record);
-        }
-
-        return new Record(dataRecord, ipAddress, pl);
+        return (long) pl << 32 | (0xFFFFFFFFL & record);
     }
 
+    /**
+     * Looks up <code>ipAddress</code> and decodes its country and continent.
+     * Only the fields of the model are read from the database; the rest of
+     * the record, and the cache, are not used.
+     *
+     * @param ipAddress IPv4 or IPv6 address to lookup.
+     * @return A Country model for the requested IP address, or
+     * <code>null</code> if there is no data for the address. The country or
+     * continent is <code>null</code> if the record has none. The model is
+     * shared by all lookups if the reader was built with
+     * {@link Builder#prebuildCountries(boolean)}.
+     * @throws IOException if a file I/O error occurs.
+     */
     @Override
     public CountryResponse getCountry(InetAddress ipAddress) throws IOException {
-        JsonElement jsonElement = get(ipAddress);
-        if (jsonElement == null) {
+        Decoder decoder = this.acquireDecoder();
+        try {
+            return this.decodeCountry(decoder,
+                    (int) this.findRecord(decoder.getBuffer(), ipAddress));
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    private CountryResponse decodeCountry(Decoder decoder, int offset)
+            throws IOException {
+        if (offset == NO_DATA) {
             return null;
         }
+        if (this.countryResponses != null) {
+            CountryResponse response = this.countryResponses.get(offset);
+            if (response != null) {
+                return response;
+            }
+        }
+        return ModelDecoder.decodeCountryResponse(decoder, offset, this.locales);
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> and decodes its city, continent,
+     * country, location, postal code and subdivisions. Only the fields of the
+     * model are read from the database; the rest of the record, and the
+     * cache, are not used.
+     *
+     * @param ipAddress IPv4 or IPv6 address to lookup.
+     * @return A City model for the requested IP address, or <code>null</code>
+     * if there is no data for the address. Any part of the model that the
+     * record has no data for is <code>null</code>.
+     * @throws IOException if a file I/O error occurs.
+     */
+    public CityResponse getCity(InetAddress ipAddress) throws IOException {
+        Decoder decoder = this.acquireDecoder();
+        try {
+            int offset = (int) this.findRecord(decoder.getBuffer(), ipAddress);
+            if (offset == NO_DATA) {
+                return null;
+            }
+            return ModelDecoder.decodeCityResponse(decoder, offset, this.locales);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
 
-        return CountryResponse.of(jsonElement);
+    /**
+     * Looks up <code>ipAddress</code> and decodes its autonomous system.
+     * Only the fields of the model are read from the database, and the cache
+     * is not used.
+     *
+     * @param ipAddress IPv4 or IPv6 address to lookup.
+     * @return An ASN model for the requested IP address, or
+     * <code>null</code> if there is no data for the address.
+     * @throws IOException if a file I/O error occurs.
+     */
+    public AsnResponse getAsn(InetAddress ipAddress) throws IOException {
+        Decoder decoder = this.acquireDecoder();
+        try {
+            int offset = (int) this.findRecord(decoder.getBuffer(), ipAddress);
+            if (offset == NO_DATA) {
+                return null;
+            }
+            return ModelDecoder.decodeAsnResponse(decoder, offset);
+        } finally {
+            this.releaseDecoder(decoder);
+        }
     }
 
     private BufferHolder getBufferHolder() throws ClosedDatabaseException {
@@ -254,8 +1062,8 @@ public class Reader implements GeoIp2Provider, Closeable {
         }
     }
 
-    private JsonElement resolveDataPointer(ByteBuffer buffer, int pointer)
-            throws IOException {
+    private int resolveDataOffset(ByteBuffer buffer, int pointer)
+            throws InvalidDatabaseException {
         int resolved = (pointer - this.metadata.getNodeCount())
                 + this.metadata.getSearchTreeSize();
 
@@ -264,12 +1072,36 @@ public class Reader implements GeoIp2Provider, Closeable {
                     "The MaxMind DB file's search tree is corrupt: "
                             + "contains pointer larger than the database.");
         }
+        return resolved;
+    }
+
+    /*
+     * Decoders are pooled, and each keeps its own duplicate of the buffer, so
+     * a lookup normally allocates neither. A Decoder must be released once
+     * the lookup is done with it.
+     */
+    Decoder acquireDecoder() throws ClosedDatabaseException {
+        BufferHolder bufferHolder = this.getBufferHolder();
+        Decoder decoder = this.decoderPool.acquire();
+        if (decoder == null) {
+            decoder = this.newDecoder(bufferHolder.get());
+        }
+        return decoder;
+    }
 
-        // We only want the data from the decoder, not the offset where it was
-        // found.
-        Decoder decoder = new Decoder(this.cache, buffer,
-                this.metadata.getSearchTreeSize() + DATA_SECTION_SEPARATOR_SIZE);
-        return decoder.decode(resolved);
+    void releaseDecoder(Decoder decoder) {
+        this.decoderPool.release(decoder);
+        if (this.bufferHolderReference.get() == null) {
+            // The reader was closed during the lookup. Do not let the pool
+            // keep the buffer alive.
+            this.decoderPool.clear();
+        }
+    }
+
+    private Decoder newDecoder(ByteBuffer buffer) {
+        return new Decoder(this.cache, buffer,
+                this.metadata.getSearchTreeSize() + DATA_SECTION_SEPARATOR_SIZE,
+                this.maxDecodeDepth);
     }
 
     /*
@@ -308,6 +1140,100 @@ public class Reader implements GeoIp2Provider, Closeable {
         return this.metadata;
     }
 
+    /**
+     * @return the locales the names in the models are taken from, in order
+     * of preference: those given to {@link Builder#locales(List)} that the
+     * database has names in, or the fallback described there if it has none
+     * of them.
+     */
+    public List<String> getLocales() {
+        return this.locales.asList();
+    }
+
+    /**
+     * @return a snapshot of the statistics of the cache, or <code>null</code>
+     * if the cache is not an {@link InstrumentedCache}.
+     */
+    public CacheStats getCacheStats() {
+        if (this.cache instanceof InstrumentedCache) {
+            return ((InstrumentedCache) this.cache).getStats();
+        }
+        return null;
+    }
+
+    /**
+     * @return the networks looked up most, most first, as tracked since the
+     * reader was opened.
+     * @throws IllegalStateException if the reader does not track its hot
+     *                               set; see
+     *                               {@link Builder#trackHotSet(int, int)}.
+     */
+    public List<HotSpot> getHotNetworks() {
+        return this.hotSetTracker().networks();
+    }
+
+    /**
+     * @return the records looked up most, most first, as tracked since the
+     * reader was opened.
+     * @throws IllegalStateException if the reader does not track its hot
+     *                               set; see
+     *                               {@link Builder#trackHotSet(int, int)}.
+     */
+    public List<HotSpot> getHotRecords() {
+        return this.hotSetTracker().records();
+    }
+
+    /**
+     * Pins the values the hot records need in the cache, if it is a
+     * {@link PinnableCache} that can pin, and loads any of them that are not
+     * cached yet. These are the values the hot records point to, the values
+     * those point to in turn, and the records themselves if whole records are
+     * cached. This replaces what was pinned before, so it can be called
+     * periodically as the traffic changes.
+     *
+     * @return the number of values pinned, or 0 if the cache cannot pin.
+     * @throws IOException           if a file I/O error occurs.
+     * @throws IllegalStateException if the reader does not track its hot
+     *                               set; see
+     *                               {@link Builder#trackHotSet(int, int)}.
+     */
+    public int pinHotSet() throws IOException {
+        List<HotSpot> records = this.hotSetTracker().records();
+        if (!(this.cache instanceof PinnableCache) || !((PinnableCache) this.cache).canPin()) {
+            return 0;
+        }
+        Decoder decoder = this.acquireDecoder();
+        try {
+            Set<Integer> keys = new LinkedHashSet<>();
+            for (HotSpot record : records) {
+                int offset = record.getDataOffset();
+                if (this.cacheRecords) {
+                    keys.add(offset);
+                }
+                decoder.addPointerTargets(offset, keys);
+            }
+            int[] pinned = new int[keys.size()];
+            int i = 0;
+            for (int key : keys) {
+                pinned[i++] = key;
+            }
+            ((PinnableCache) this.cache).pin(pinned);
+            for (int key : pinned) {
+                decoder.preload(key);
+            }
+            return pinned.length;
+        } finally {
+            this.releaseDecoder(decoder);
+        }
+    }
+
+    private HotSetTracker hotSetTracker() {
+        if (this.hotSet == null) {
+            throw new IllegalStateException("The hot set is not tracked");
+        }
+        return this.hotSet;
+    }
+
     /**
      * <p>
      * Closes the database.
@@ -325,5 +1251,6 @@ public class Reader implements GeoIp2Provider, Closeable {
     @Override
     public void close() throws IOException {
         this.bufferHolderReference.set(null);
+        this.decoderPool.clear();
     }
 }
@@ -0,0 +1,218 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * A cache with a fixed capacity that keeps the values that are requested
+ * most, so that it follows the traffic as it changes. The capacity is either
+ * a number of entries or an estimated number of bytes, see
+ * {@link #withMaximumBytes(long)}.
+ * </p>
+ * <p>
+ * Entries are evicted with the CLOCK algorithm, an approximation of LRU
+ * that lets a hit mark an entry as recently used without taking a lock. When
+ * the cache is full, a new value is only admitted if it has been requested
+ * more often recently than the entry it would evict. This keeps one-off
+ * lookups, such as a scan of the address space, from flushing the hot
+ * entries. Keys can also be pinned with {@link #pin(int[])}, which admits
+ * their values whenever they are loaded and keeps them from being evicted.
+ * </p>
+ * <p>
+ * Hits do not block, and do not all write to the frequency counts: each
+ * thread records its requests in a buffer of its own, or nearly so, and the
+ * counts are brought up to date when an entry is added. Misses add the
+ * loaded value under a lock, so the capacity may be exceeded briefly while
+ * other threads are loading.
+ * </p>
+ */
+public class BoundedCache implements InstrumentedCache, PinnableCache, PeekableCache {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    // Used to size the frequency sketch when the capacity is in bytes
+    private static final int EXPECTED_ENTRY_BYTES = 512;
+
+    private final long capacity;
+    private final boolean weighBytes;
+    private final ConcurrentHashMap<Integer, Entry> cache;
+    private final RequestBuffer requests;
+    private final StatsCounter stats = new StatsCounter();
+    private volatile Set<Integer> pinned = Collections.emptySet();
+
+    // Guarded by itself, as is weight
+    private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+    private long weight;
+
+    private static final class Entry {
+        final int key;
+        final JsonElement value;
+        final long weight;
+        volatile boolean referenced;
+
+        Entry(int key, JsonElement value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    public BoundedCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of entries.
+     */
+    public BoundedCache(int capacity) {
+        this(capacity, false, capacity);
+    }
+
+    private BoundedCache(long capacity, boolean weighBytes, long expectedEntries) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.weighBytes = weighBytes;
+        this.cache = new ConcurrentHashMap<>((int) Math.min(expectedEntries, 1 << 20));
+        this.requests = new RequestBuffer(new FrequencySketch(expectedEntries));
+    }
+
+    /**
+     * @param maximumBytes the maximum estimated size of the cached values, in
+     *                     bytes.
+     * @return a cache that holds values up to the given estimated size.
+     */
+    public static BoundedCache withMaximumBytes(long maximumBytes) {
+        return new BoundedCache(maximumBytes, true,
+                Math.max(maximumBytes / EXPECTED_ENTRY_BYTES, 1));
+    }
+
+    @Override
+    public JsonElement get(int key, Loader loader) throws IOException {
+        JsonElement cached = this.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        this.stats.recordMiss();
+        JsonElement value;
+        long start = System.nanoTime();
+        try {
+            value = loader.load(key);
+        } finally {
+            this.stats.recordLoad(System.nanoTime() - start);
+        }
+        long w = this.weighBytes ? JsonSizeEstimator.estimate(value) : 1;
+        if (w <= this.capacity) {
+            this.add(new Entry(key, value, w));
+        }
+        return value;
+    }
+
+    private void add(Entry entry) {
+        synchronized (this.clock) {
+            Integer k = entry.key;
+            if (this.cache.containsKey(k)) {
+                // Another thread loaded it first
+                return;
+            }
+            Set<Integer> pinned = this.pinned;
+            boolean admit = pinned.contains(k);
+            // Take as many victims as it needs room for before evicting any,
+            // as it is only admitted if it is worth more than each of them
+            List<Entry> victims = new ArrayList<>(1);
+            long freed = 0;
+            FrequencySketch sketch = this.requests.lock();
+            try {
+                int frequency = sketch.frequency(entry.key);
+                while (this.weight - freed + entry.weight > this.capacity) {
+                    Entry victim = this.nextVictim(pinned);
+                    victims.add(victim);
+                    freed += victim.weight;
+                    if (!admit && frequency <= sketch.frequency(victim.key)) {
+                        // Not worth more than what is already cached
+                        this.clock.addAll(victims);
+                        return;
+                    }
+                }
+            } finally {
+                this.requests.unlock();
+            }
+            for (Entry victim : victims) {
+                this.cache.remove(victim.key);
+                this.weight -= victim.weight;
+                this.stats.recordEviction();
+            }
+            this.cache.put(k, entry);
+            this.clock.addLast(entry);
+            this.weight += entry.weight;
+        }
+    }
+
+    /**
+     * Looks up a value without loading it. This counts as a request for the
+     * key, towards admitting it when it is loaded.
+     */
+    @Override
+    public JsonElement getIfPresent(int key) {
+        Integer k = key;
+        this.requests.record(k);
+        Entry entry = this.cache.get(k);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        this.stats.recordHit();
+        return entry.value;
+    }
+
+    @Override
+    public void pin(int[] keys) {
+        Set<Integer> pinned = new HashSet<>(keys.length * 2);
+        for (int key : keys) {
+            pinned.add(key);
+        }
+        this.pinned = pinned;
+    }
+
+    @Override
+    public boolean canPin() {
+        return true;
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return this.stats.snapshot(this.cache.size());
+    }
+
+    /*
+     * Removes and returns the first entry on the clock that has not been used
+     * since the hand last passed it, giving every used entry it passes a
+     * second chance. Pinned entries are passed over, unless the hand has
+     * been all the way around and found nothing else.
+     */
+    private Entry nextVictim(Set<Integer> pinned) {
+        int passes = pinned.isEmpty() ? 0 : this.clock.size();
+        for (; ; ) {
+            Entry entry = this.clock.pollFirst();
+            if (!entry.referenced
+                    && (passes <= 0 || !pinned.contains(entry.key))) {
+                return entry;
+            }
+            passes--;
+            entry.referenced = false;
+            this.clock.addLast(entry);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * A cache whose size is limited by a {@link CacheBudget} it shares with other
+ * caches. Create one with {@link CacheBudget#newCache()}.
+ * </p>
+ * <p>
+ * Hits do not block. Misses add the loaded value under the lock of the
+ * budget, which is shared by all of its caches.
+ * </p>
+ */
+public final class BudgetedCache implements InstrumentedCache, PeekableCache {
+
+    private final CacheBudget budget;
+    final ConcurrentHashMap<Integer, Entry> cache = new ConcurrentHashMap<>();
+    final StatsCounter stats = new StatsCounter();
+
+    // Guarded by the budget
+    long weight;
+    volatile boolean released;
+
+    static final class Entry {
+        final BudgetedCache owner;
+        final int key;
+        final JsonElement value;
+        final long weight;
+        // The time it took to load the value, in nanoseconds
+        final long cost;
+        volatile boolean referenced;
+
+        Entry(BudgetedCache owner, int key, JsonElement value, long weight, long cost) {
+            this.owner = owner;
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.cost = Math.max(cost, 1);
+        }
+
+        double costPerByte() {
+            return (double) this.cost / this.weight;
+        }
+    }
+
+    BudgetedCache(CacheBudget budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    public JsonElement get(int key, Loader loader) throws IOException {
+        JsonElement cached = this.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        this.stats.recordMiss();
+        JsonElement value;
+        long start = System.nanoTime();
+        long cost;
+        try {
+            value = loader.load(key);
+        } finally {
+            cost = System.nanoTime() - start;
+            this.stats.recordLoad(cost);
+        }
+        if (!this.released) {
+            this.budget.add(new Entry(this, key, value,
+                    JsonSizeEstimator.estimate(value), cost));
+        }
+        return value;
+    }
+
+    @Override
+    public JsonElement getIfPresent(int key) {
+        Entry entry = this.cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        this.stats.recordHit();
+        return entry.value;
+    }
+
+    /**
+     * Removes the entries of this cache and returns their memory to the
+     * budget, for example when the reader using the cache is closed. Values
+     * are still loaded after this, but no longer cached.
+     */
+    public void release() {
+        this.budget.release(this);
+    }
+
+    /**
+     * @return the estimated size of the values in this cache, in bytes.
+     */
+    public long getUsedBytes() {
+        return this.budget.usedBytes(this);
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return this.stats.snapshot(this.cache.size());
+    }
+}
@@ -11,13 +11,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * policy, it just fills up until reaching the specified capacity <small>(or
  * close enough at least, bounds check is not atomic :)</small>
  */
-public class CHMCache implements NodeCache {
+public class CHMCache implements InstrumentedCache, PeekableCache {
 
     private static final int DEFAULT_CAPACITY = 4096;
 
     private final int capacity;
     private final Map<Integer, JsonElement> cache;
     private boolean cacheFull;
+    private final StatsCounter stats = new StatsCounter();
 
     public CHMCache() {
         this(DEFAULT_CAPACITY);
@@ -33,7 +34,13 @@ public class CHMCache implements NodeCache {
         Integer k = key;
         JsonElement value = cache.get(k);
         if (value == null) {
-            value = loader.load(key);
+            stats.recordMiss();
+            long start = System.nanoTime();
+            try {
+                value = loader.load(key);
+            } finally {
+                stats.recordLoad(System.nanoTime() - start);
+            }
             if (!cacheFull) {
                 if (cache.size() < capacity) {
                     cache.put(k, value);
@@ -41,8 +48,24 @@ public class CHMCache implements NodeCache {
                     cacheFull = true;
                 }
             }
+        } else {
+            stats.recordHit();
         }
         return value;
     }
 
+    @Override
+    public JsonElement getIfPresent(int key) {
+        JsonElement value = cache.get(key);
+        if (value != null) {
+            stats.recordHit();
+        }
+        return value;
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return stats.snapshot(cache.size());
+    }
+
 }
@@ -0,0 +1,165 @@
+package com.maxmind.db.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>
+ * A memory budget shared by several caches, such as the caches of the
+ * readers of several databases in one application. The caches created by
+ * {@link #newCache()} together hold values up to the estimated size given,
+ * and evict each other's entries to stay within it, so the memory goes to
+ * whichever database needs it most.
+ * </p>
+ * <p>
+ * Entries are evicted with the CLOCK algorithm, an approximation of LRU
+ * that lets a hit mark an entry as recently used without taking a lock.
+ * Rather than the first entry that has not been used recently, the hand
+ * evicts the cheapest of several such entries: the one that took the least
+ * time to load for the bytes it takes up. Values that are quick to decode
+ * again, or large, make room for values that are slow to decode and small,
+ * which keeps the overall cost of misses low for the memory used.
+ * </p>
+ * <pre>
+ * CacheBudget budget = new CacheBudget(64 * 1024 * 1024);
+ * Reader city = new Reader(cityDatabase, budget.newCache());
+ * Reader asn = new Reader(asnDatabase, budget.newCache());
+ * </pre>
+ */
+public final class CacheBudget {
+
+    // The number of entries the hand compares for each eviction
+    private static final int CANDIDATES = 8;
+
+    private final long maximumBytes;
+
+    // Guarded by itself, as are usedBytes and the bookkeeping of the caches
+    private final ArrayDeque<BudgetedCache.Entry> clock = new ArrayDeque<>();
+    private long usedBytes;
+
+    /**
+     * @param maximumBytes the maximum estimated size of the values in all of
+     *                     the caches, in bytes.
+     */
+    public CacheBudget(long maximumBytes) {
+        if (maximumBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximum size must be positive: " + maximumBytes);
+        }
+        this.maximumBytes = maximumBytes;
+    }
+
+    /**
+     * @return a new, empty cache that shares this budget.
+     */
+    public BudgetedCache newCache() {
+        return new BudgetedCache(this);
+    }
+
+    /**
+     * @return the maximum estimated size of the values in all of the caches,
+     * in bytes.
+     */
+    public long getMaximumBytes() {
+        return this.maximumBytes;
+    }
+
+    /**
+     * @return the estimated size of the values in all of the caches, in
+     * bytes.
+     */
+    public long getUsedBytes() {
+        synchronized (this.clock) {
+            return this.usedBytes;
+        }
+    }
+
+    long usedBytes(BudgetedCache cache) {
+        synchronized (this.clock) {
+            return cache.weight;
+        }
+    }
+
+    void add(BudgetedCache.Entry entry) {
+        if (entry.weight > this.maximumBytes) {
+            return;
+        }
+        synchronized (this.clock) {
+            BudgetedCache owner = entry.owner;
+            if (owner.released || owner.cache.putIfAbsent(entry.key, entry) != null) {
+                // Released, or another thread loaded it first
+                return;
+            }
+            while (this.usedBytes + entry.weight > this.maximumBytes
+                    && this.evictOne()) {
+                // keep going
+            }
+            this.clock.addLast(entry);
+            this.usedBytes += entry.weight;
+            owner.weight += entry.weight;
+        }
+    }
+
+    void release(BudgetedCache cache) {
+        synchronized (this.clock) {
+            cache.released = true;
+            // Take the entries off the clock too, rather than leaving their
+            // values reachable until the hand gets to them, which it may
+            // never do once the budget is no longer full
+            for (Iterator<BudgetedCache.Entry> i = this.clock.iterator(); i.hasNext(); ) {
+                if (i.next().owner == cache) {
+                    i.remove();
+                }
+            }
+            cache.cache.clear();
+            this.usedBytes -= cache.weight;
+            cache.weight = 0;
+        }
+    }
+
+    /*
+     * Evicts the entry that is cheapest to load again per byte out of the
+     * next few entries on the clock that have not been used since the hand
+     * last passed them. Every used entry the hand passes gets a second
+     * chance. Returns false if there is nothing left to evict.
+     */
+    private boolean evictOne() {
+        List<BudgetedCache.Entry> candidates = new ArrayList<>(CANDIDATES);
+        // Once the hand has been all the way around, which only happens if
+        // entries are hit as fast as it clears them, used entries are
+        // candidates too
+        int secondChances = this.clock.size();
+        while (candidates.size() < CANDIDATES && !this.clock.isEmpty()) {
+            BudgetedCache.Entry entry = this.clock.pollFirst();
+            if (entry.referenced && secondChances-- > 0) {
+                entry.referenced = false;
+                this.clock.addLast(entry);
+                continue;
+            }
+            candidates.add(entry);
+        }
+        if (candidates.isEmpty()) {
+            return false;
+        }
+
+        BudgetedCache.Entry victim = candidates.get(0);
+        for (BudgetedCache.Entry candidate : candidates) {
+            if (candidate.costPerByte() < victim.costPerByte()) {
+                victim = candidate;
+            }
+        }
+        for (BudgetedCache.Entry candidate : candidates) {
+            if (candidate != victim) {
+                this.clock.addLast(candidate);
+            }
+        }
+        BudgetedCache owner = victim.owner;
+        owner.cache.remove(victim.key, victim);
+        owner.weight -= victim.weight;
+        owner.stats.recordEviction();
+        this.usedBytes -= victim.weight;
+        return true;
+    }
+}
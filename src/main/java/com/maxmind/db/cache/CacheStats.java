@@ -0,0 +1,106 @@
+package com.maxmind.db.cache;
+
+/**
+ * A snapshot of the statistics of a cache. The counts are cumulative since
+ * the cache was created.
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long totalLoadTime;
+    private final long evictionCount;
+    private final long size;
+
+    /**
+     * Create a new snapshot.
+     *
+     * @param hitCount      the number of lookups served from the cache.
+     * @param missCount     the number of lookups not served from the cache.
+     * @param loadCount     the number of values loaded, whether or not the
+     *                      load succeeded.
+     * @param totalLoadTime the time spent loading values, in nanoseconds.
+     * @param evictionCount the number of entries evicted or replaced.
+     * @param size          the number of entries in the cache.
+     */
+    public CacheStats(long hitCount, long missCount, long loadCount,
+                      long totalLoadTime, long evictionCount, long size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of lookups served from the cache.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * @return the number of lookups not served from the cache.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * @return the number of values loaded, whether or not the load succeeded.
+     */
+    public long getLoadCount() {
+        return this.loadCount;
+    }
+
+    /**
+     * @return the time spent loading values, in nanoseconds. The time spent
+     * loading a value nested in another is counted for both.
+     */
+    public long getTotalLoadTime() {
+        return this.totalLoadTime;
+    }
+
+    /**
+     * @return the number of entries evicted or replaced.
+     */
+    public long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * @return the number of entries in the cache when the snapshot was taken.
+     */
+    public long getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return the fraction of lookups served from the cache, or 1.0 if there
+     * were no lookups.
+     */
+    public double getHitRate() {
+        long requests = this.hitCount + this.missCount;
+        return requests == 0 ? 1.0 : (double) this.hitCount / requests;
+    }
+
+    /**
+     * @return the average time spent loading a value, in nanoseconds.
+     */
+    public double getAverageLoadPenalty() {
+        return this.loadCount == 0 ? 0.0 : (double) this.totalLoadTime / this.loadCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{"
+                + "hitCount=" + this.hitCount
+                + ", missCount=" + this.missCount
+                + ", loadCount=" + this.loadCount
+                + ", totalLoadTime=" + this.totalLoadTime
+                + ", evictionCount=" + this.evictionCount
+                + ", size=" + this.size
+                + '}';
+    }
+}
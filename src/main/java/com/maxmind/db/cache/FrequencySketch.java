@@ -0,0 +1,80 @@
+package com.maxmind.db.cache;
+
+/*
+ * A count-min sketch of how often keys were requested recently, used to
+ * decide whether a new entry is worth more than the one it would evict. Each
+ * key has a 4-bit counter in each of four rows; its frequency is the smallest
+ * of the four. All counters are halved periodically so that keys which are
+ * no longer requested lose their weight and the sketch follows the traffic.
+ *
+ * It is not thread-safe. BoundedCache records requests in a RequestBuffer,
+ * which drains them into the sketch under a lock.
+ */
+final class FrequencySketch {
+
+    private static final int MAX_COUNT = 15;
+    private static final int MIN_WIDTH = 256;
+    private static final int MAX_WIDTH = 1 << 24;
+
+    // Odd multipliers for the rows; the index is taken from the high bits of
+    // the product.
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D,
+            0x27D4EB2F};
+
+    private final byte[] table;
+    private final int shift;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long expectedEntries) {
+        // Several counters per entry keep collisions with keys that are not
+        // cached from inflating the frequencies much.
+        int width = (int) Math.min(Math.max(4 * expectedEntries, MIN_WIDTH), MAX_WIDTH);
+        width = Integer.highestOneBit(width - 1) << 1;
+        this.table = new byte[width * SEEDS.length];
+        this.shift = Integer.numberOfLeadingZeros(width) + 1;
+        this.sampleSize = 10 * width;
+    }
+
+    void increment(int key) {
+        int hash = FrequencySketch.spread(key);
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = this.indexOf(hash, row);
+            int count = this.table[index];
+            if (count < MAX_COUNT) {
+                this.table[index] = (byte) (count + 1);
+                added = true;
+            }
+        }
+        if (added && ++this.additions >= this.sampleSize) {
+            this.halve();
+        }
+    }
+
+    int frequency(int key) {
+        int hash = FrequencySketch.spread(key);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            frequency = Math.min(frequency, this.table[this.indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void halve() {
+        this.additions = 0;
+        for (int i = 0; i < this.table.length; i++) {
+            this.table[i] = (byte) (this.table[i] >>> 1);
+        }
+    }
+
+    private int indexOf(int hash, int row) {
+        int width = this.table.length / SEEDS.length;
+        return row * width + ((hash * SEEDS[row]) >>> this.shift);
+    }
+
+    private static int spread(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
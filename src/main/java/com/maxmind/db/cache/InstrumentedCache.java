@@ -0,0 +1,15 @@
+package com.maxmind.db.cache;
+
+/**
+ * A {@link NodeCache} that keeps statistics about its use. All of the caches
+ * in this package do. The statistics of the cache a reader uses are also
+ * available from <code>Reader.getCacheStats()</code>.
+ */
+public interface InstrumentedCache extends NodeCache {
+
+    /**
+     * @return a snapshot of the statistics of the cache.
+     */
+    CacheStats getStats();
+
+}
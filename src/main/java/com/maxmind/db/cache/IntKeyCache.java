@@ -0,0 +1,127 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * A lock-free cache in a fixed-size open-addressing table. Keys are kept as
+ * primitive <code>int</code>s, so a hit allocates nothing, and each entry
+ * takes about half the memory of a {@link CHMCache} entry.
+ * </p>
+ * <p>
+ * A value is stored in the first free slot near its key's home slot. Once
+ * those slots are all taken, it replaces whatever is in the home slot, so the
+ * cache keeps taking in new values rather than filling up for good. There is
+ * no locking: concurrent lookups of the same key may both load it, and a
+ * value may overwrite one that another thread just stored.
+ * </p>
+ */
+public class IntKeyCache implements InstrumentedCache, PeekableCache {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int MAX_PROBES = 8;
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+    private final int shift;
+    private final AtomicInteger size = new AtomicInteger();
+    private final StatsCounter stats = new StatsCounter();
+
+    private static final class Entry {
+        final int key;
+        final JsonElement value;
+
+        Entry(int key, JsonElement value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    public IntKeyCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of entries to make room for. The table is
+     *                 rounded up to a power of two, with some room to spare
+     *                 so that most keys find a slot near their home slot.
+     */
+    public IntKeyCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(capacity + capacity / 2, MAX_PROBES) - 1) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.shift = Integer.numberOfLeadingZeros(size) + 1;
+    }
+
+    @Override
+    public JsonElement get(int key, Loader loader) throws IOException {
+        JsonElement cached = this.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        this.stats.recordMiss();
+        JsonElement value;
+        long start = System.nanoTime();
+        try {
+            value = loader.load(key);
+        } finally {
+            this.stats.recordLoad(System.nanoTime() - start);
+        }
+        this.put(this.homeSlot(key), new Entry(key, value));
+        return value;
+    }
+
+    @Override
+    public JsonElement getIfPresent(int key) {
+        int home = this.homeSlot(key);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            Entry entry = this.table.get((home + i) & this.mask);
+            if (entry == null) {
+                // Slots are only ever filled in probe order and never
+                // emptied, so the key cannot be further along.
+                break;
+            }
+            if (entry.key == key) {
+                this.stats.recordHit();
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    private void put(int home, Entry entry) {
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int index = (home + i) & this.mask;
+            Entry current = this.table.get(index);
+            if (current == null) {
+                if (this.table.compareAndSet(index, null, entry)) {
+                    this.size.incrementAndGet();
+                    return;
+                }
+                current = this.table.get(index);
+            }
+            if (current.key == entry.key) {
+                return;
+            }
+        }
+        this.table.set(home, entry);
+        this.stats.recordEviction();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return this.stats.snapshot(this.size.get());
+    }
+
+    private int homeSlot(int key) {
+        return (key * 0x9E3779B9) >>> this.shift;
+    }
+}
@@ -0,0 +1,67 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/*
+ * Estimates how many bytes of heap a decoded value takes up, assuming a
+ * 64-bit JVM with compressed references. This only needs to be close enough
+ * to size a cache. Values shared between entries, such as the canonical
+ * primitives the decoder hands out, are counted for every entry they appear
+ * in, so the estimate errs on the high side.
+ */
+final class JsonSizeEstimator {
+
+    private static final int OBJECT = 16;
+    private static final int STRING = 24 + 16;
+    private static final int NUMBER = 24;
+    // A LinkedTreeMap and its header node
+    private static final int MAP = 48 + 40;
+    private static final int MAP_ENTRY = 40;
+    // An ArrayList and its backing array
+    private static final int LIST = 24 + 16;
+    private static final int LIST_ENTRY = 4;
+
+    private JsonSizeEstimator() {
+    }
+
+    static long estimate(JsonElement value) {
+        long size = 0;
+        Deque<JsonElement> pending = new ArrayDeque<>();
+        pending.push(value);
+        while (!pending.isEmpty()) {
+            JsonElement element = pending.pop();
+            size += OBJECT;
+            if (element.isJsonObject()) {
+                size += MAP;
+                for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+                    size += MAP_ENTRY + JsonSizeEstimator.string(entry.getKey());
+                    pending.push(entry.getValue());
+                }
+            } else if (element.isJsonArray()) {
+                JsonArray array = (JsonArray) element;
+                size += LIST + LIST_ENTRY * array.size();
+                for (JsonElement child : array) {
+                    pending.push(child);
+                }
+            } else if (element.isJsonPrimitive()) {
+                JsonPrimitive primitive = (JsonPrimitive) element;
+                size += primitive.isString()
+                        ? JsonSizeEstimator.string(primitive.getAsString())
+                        : NUMBER;
+            }
+        }
+        return size;
+    }
+
+    private static long string(String s) {
+        // Assumes two bytes per character, as without compact strings.
+        return STRING + 2L * s.length();
+    }
+}
@@ -5,9 +5,10 @@ import com.google.gson.JsonElement;
 import java.io.IOException;
 
 /**
- * A no-op cache singleton.
+ * A no-op cache singleton. It keeps no statistics, as it is shared by every
+ * reader that does not cache.
  */
-public class NoCache implements NodeCache {
+public class NoCache implements InstrumentedCache {
 
     private static final NoCache INSTANCE = new NoCache();
 
@@ -19,6 +20,11 @@ public class NoCache implements NodeCache {
         return loader.load(key);
     }
 
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
     public static NoCache getInstance() {
         return INSTANCE;
     }
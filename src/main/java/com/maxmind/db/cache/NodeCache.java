@@ -4,6 +4,12 @@ import com.google.gson.JsonElement;
 
 import java.io.IOException;
 
+/**
+ * A cache of decoded data section values, keyed by their offset in the
+ * database. Values placed in a cache are shared between all lookups on the
+ * reader and must not be modified; the reader hands each caller its own copy
+ * of the mutable containers so cached values stay intact.
+ */
 public interface NodeCache {
 
     interface Loader {
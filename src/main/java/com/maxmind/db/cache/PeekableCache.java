@@ -0,0 +1,23 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+
+/**
+ * A {@link NodeCache} whose values can be looked up without loading them. An
+ * <code>AsyncReader</code> uses this to answer lookups whose record is
+ * cached on the calling thread, rather than handing them to its executor.
+ * All of the caches in this package that hold values are peekable, as are
+ * the wrappers around them if the cache they wrap is.
+ */
+public interface PeekableCache extends NodeCache {
+
+    /**
+     * @param key the key to look up.
+     * @return the cached value, or <code>null</code> if the value is not
+     * cached. A value that is found counts as a hit. One that is not found
+     * is not counted, as the caller goes on to look it up with
+     * {@link #get(int, Loader)}.
+     */
+    JsonElement getIfPresent(int key);
+
+}
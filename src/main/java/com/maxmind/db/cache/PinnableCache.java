@@ -0,0 +1,26 @@
+package com.maxmind.db.cache;
+
+/**
+ * A {@link NodeCache} that can be told which keys to keep. A reader that
+ * tracks its hot set pins it with <code>Reader.pinHotSet()</code>, so that a
+ * burst of scan-like traffic does not evict the values most lookups need.
+ */
+public interface PinnableCache extends NodeCache {
+
+    /**
+     * Replaces the keys the cache keeps. A pinned key is only evicted if
+     * nothing else can be, so no more keys should be pinned than the cache
+     * holds. Pinning a key does not load its value; a pinned value that is
+     * loaded later is kept.
+     *
+     * @param keys the keys to keep, replacing those pinned before.
+     */
+    void pin(int[] keys);
+
+    /**
+     * @return whether {@link #pin(int[])} keeps the keys. A cache that
+     * wraps another cache can only pin if the cache it wraps can.
+     */
+    boolean canPin();
+
+}
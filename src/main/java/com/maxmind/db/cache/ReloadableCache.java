@@ -0,0 +1,112 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * A cache that can be handed from one reader to the next when a database is
+ * reloaded. Cached values are keyed by their offset in the database, so they
+ * are only valid for the exact file they were decoded from. When a reader
+ * opens a database with this cache, it identifies the database by its type,
+ * build date, size and checksum. If that is the database the cache was last
+ * used with, the reader keeps the warm cache. Otherwise the reader starts on
+ * a new, empty cache, and the old one is left to the readers still using it.
+ * </p>
+ * <pre>
+ * ReloadableCache cache = new ReloadableCache(new ReloadableCache.Factory() {
+ *     &#64;Override
+ *     public NodeCache newCache() {
+ *         return new BoundedCache();
+ *     }
+ * });
+ * Reader reader = new Reader(database, cache);
+ * // later, on reload
+ * Reader reloaded = new Reader(database, cache);
+ * </pre>
+ * <p>
+ * The readers use the cache for their own database directly, so an old and a
+ * new reader can be in use at the same time. Only the readers look up values
+ * through this class; calling {@link #get(int, Loader)} directly uses the
+ * cache of the database opened last.
+ * </p>
+ */
+public class ReloadableCache implements InstrumentedCache {
+
+    /**
+     * Creates the cache for each new database.
+     */
+    public interface Factory {
+        /**
+         * @return a new, empty cache.
+         */
+        NodeCache newCache();
+    }
+
+    private final Factory factory;
+    private Generation current;
+
+    private static final class Generation {
+        final String databaseId;
+        final NodeCache cache;
+
+        Generation(String databaseId, NodeCache cache) {
+            this.databaseId = databaseId;
+            this.cache = cache;
+        }
+    }
+
+    /**
+     * @param factory creates the cache for each new database.
+     */
+    public ReloadableCache(Factory factory) {
+        if (factory == null) {
+            throw new NullPointerException("Factory cannot be null");
+        }
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the cache to use for a database. This is called by the reader.
+     *
+     * @param databaseId identifies the contents of the database.
+     * @return the cache last used for the same database, if the database
+     * opened last had the same identity, or else a new cache.
+     */
+    public synchronized NodeCache forDatabase(String databaseId) {
+        if (this.current == null || !this.current.databaseId.equals(databaseId)) {
+            NodeCache cache = this.factory.newCache();
+            if (cache == null) {
+                throw new NullPointerException("Cache cannot be null");
+            }
+            this.current = new Generation(databaseId, cache);
+        }
+        return this.current.cache;
+    }
+
+    @Override
+    public JsonElement get(int key, Loader loader) throws IOException {
+        return this.currentCache().get(key, loader);
+    }
+
+    /**
+     * @return the statistics of the cache of the database opened last, or
+     * zeros if it is not instrumented.
+     */
+    @Override
+    public CacheStats getStats() {
+        NodeCache cache = this.currentCache();
+        if (cache instanceof InstrumentedCache) {
+            return ((InstrumentedCache) cache).getStats();
+        }
+        return new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    private synchronized NodeCache currentCache() {
+        if (this.current == null) {
+            throw new IllegalStateException("No database has been opened with this cache");
+        }
+        return this.current.cache;
+    }
+}
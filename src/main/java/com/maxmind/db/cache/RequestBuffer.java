@@ -0,0 +1,103 @@
+package com.maxmind.db.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Records the keys that are requested from a cache for its frequency sketch,
+ * so that hits, the hot path, do not all write to the one sketch. Each
+ * thread records into one of several small stripes, picked by its ID, and
+ * the stripes are drained into the sketch by whichever thread takes the
+ * sketch's lock: a thread adding an entry, or one that finds its stripe full
+ * and the lock free. A stripe that is still full after that drops the key,
+ * which only makes its frequency slightly low.
+ *
+ * The sketch must only be used while holding the lock.
+ */
+final class RequestBuffer {
+
+    private static final int STRIPES = Math.min(64, Integer.highestOneBit(
+            4 * Runtime.getRuntime().availableProcessors() - 1) << 1);
+    private static final int STRIPE_SIZE = 16;
+    // The counters of a stripe are this many longs apart, so that they are
+    // on cache lines of their own
+    private static final int PADDING = 16;
+
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReferenceArray<Integer> keys =
+            new AtomicReferenceArray<>(STRIPES * STRIPE_SIZE);
+    // The number of keys recorded into and drained from each stripe
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES * PADDING);
+    private final AtomicLongArray reads = new AtomicLongArray(STRIPES * PADDING);
+
+    RequestBuffer(FrequencySketch sketch) {
+        this.sketch = sketch;
+    }
+
+    void record(Integer key) {
+        int stripe = RequestBuffer.stripe();
+        if (this.offer(stripe, key)) {
+            return;
+        }
+        if (this.lock.tryLock()) {
+            try {
+                this.drain();
+            } finally {
+                this.lock.unlock();
+            }
+            this.offer(stripe, key);
+        }
+    }
+
+    /*
+     * Takes the lock and drains the stripes, after which the sketch is up to
+     * date with the requests recorded so far.
+     */
+    FrequencySketch lock() {
+        this.lock.lock();
+        this.drain();
+        return this.sketch;
+    }
+
+    void unlock() {
+        this.lock.unlock();
+    }
+
+    private boolean offer(int stripe, Integer key) {
+        int counter = stripe * PADDING;
+        long write = this.writes.get(counter);
+        if (write - this.reads.get(counter) >= STRIPE_SIZE
+                || !this.writes.compareAndSet(counter, write, write + 1)) {
+            // Full, or another thread on the stripe got the slot
+            return false;
+        }
+        this.keys.lazySet(stripe * STRIPE_SIZE + (int) (write % STRIPE_SIZE), key);
+        return true;
+    }
+
+    private void drain() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int counter = stripe * PADDING;
+            long read = this.reads.get(counter);
+            long write = this.writes.get(counter);
+            for (; read < write; read++) {
+                int slot = stripe * STRIPE_SIZE + (int) (read % STRIPE_SIZE);
+                Integer key = this.keys.get(slot);
+                if (key == null) {
+                    // Claimed, but not written yet
+                    break;
+                }
+                this.keys.lazySet(slot, null);
+                this.sketch.increment(key);
+            }
+            this.reads.lazySet(counter, read);
+        }
+    }
+
+    private static int stripe() {
+        int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
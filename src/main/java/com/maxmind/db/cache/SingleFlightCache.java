@@ -0,0 +1,167 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * <p>
+ * A cache that makes concurrent misses for the same key share one load. It
+ * wraps another cache: the first thread to miss on a key loads the value,
+ * and any other thread that misses on the key meanwhile waits for that load
+ * rather than decoding the same data again. This keeps a burst of traffic
+ * on a cold reader from decoding the same records on every thread.
+ * </p>
+ * <p>
+ * Loading a value often loads the values it points to. A thread that is
+ * already loading never waits for another thread's load, as two threads
+ * whose loads point to each other's would otherwise wait forever; it loads
+ * the value itself instead.
+ * </p>
+ * <pre>
+ * Reader reader = new Reader(database, new SingleFlightCache(new CHMCache()));
+ * </pre>
+ */
+public class SingleFlightCache implements InstrumentedCache, PinnableCache, PeekableCache {
+
+    private final NodeCache cache;
+    private final ConcurrentHashMap<Integer, FutureTask<JsonElement>> loads =
+            new ConcurrentHashMap<>();
+
+    // The loader handed to the wrapped cache, one per thread so that a hit
+    // allocates nothing
+    private final ThreadLocal<CallerLoader> callers = new ThreadLocal<CallerLoader>() {
+        @Override
+        protected CallerLoader initialValue() {
+            return new CallerLoader();
+        }
+    };
+
+    /**
+     * @param cache the cache to wrap.
+     */
+    public SingleFlightCache(NodeCache cache) {
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null");
+        }
+        this.cache = cache;
+    }
+
+    @Override
+    public JsonElement get(int key, Loader loader) throws IOException {
+        CallerLoader caller = this.callers.get();
+        Loader previous = caller.loader;
+        caller.loader = loader;
+        try {
+            return this.cache.get(key, caller);
+        } finally {
+            caller.loader = previous;
+        }
+    }
+
+    /**
+     * Looks up the value in the wrapped cache, if it is a
+     * {@link PeekableCache}. A load in progress is not waited for.
+     */
+    @Override
+    public JsonElement getIfPresent(int key) {
+        if (this.cache instanceof PeekableCache) {
+            return ((PeekableCache) this.cache).getIfPresent(key);
+        }
+        return null;
+    }
+
+    /**
+     * Pins the keys in the wrapped cache, if it is a {@link PinnableCache}.
+     */
+    @Override
+    public void pin(int[] keys) {
+        if (this.cache instanceof PinnableCache) {
+            ((PinnableCache) this.cache).pin(keys);
+        }
+    }
+
+    /**
+     * @return whether the wrapped cache can pin.
+     */
+    @Override
+    public boolean canPin() {
+        return this.cache instanceof PinnableCache && ((PinnableCache) this.cache).canPin();
+    }
+
+    /**
+     * @return the statistics of the wrapped cache. Threads that waited for
+     * another thread's load count as a miss and a load there, with the time
+     * they waited as the load time. If the wrapped cache is not instrumented,
+     * all of the counts are zero.
+     */
+    @Override
+    public CacheStats getStats() {
+        if (this.cache instanceof InstrumentedCache) {
+            return ((InstrumentedCache) this.cache).getStats();
+        }
+        return new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    private final class CallerLoader implements Loader {
+        Loader loader;
+        // How many loads this thread is running
+        int depth;
+
+        @Override
+        public JsonElement load(final int key) throws IOException {
+            final Loader loader = this.loader;
+            Integer k = key;
+            FutureTask<JsonElement> task = new FutureTask<>(new Callable<JsonElement>() {
+                @Override
+                public JsonElement call() throws IOException {
+                    return loader.load(key);
+                }
+            });
+            FutureTask<JsonElement> running = SingleFlightCache.this.loads.putIfAbsent(k, task);
+            if (running == null) {
+                this.depth++;
+                try {
+                    task.run();
+                } finally {
+                    this.depth--;
+                    SingleFlightCache.this.loads.remove(k, task);
+                }
+                running = task;
+            } else if (this.depth > 0) {
+                return loader.load(key);
+            }
+            try {
+                return SingleFlightCache.result(running);
+            } catch (InterruptedException e) {
+                // Only a thread waiting for another's load gets here. Keep the
+                // interrupt for the caller and load the value without waiting.
+                Thread.currentThread().interrupt();
+                return loader.load(key);
+            }
+        }
+    }
+
+    private static JsonElement result(FutureTask<JsonElement> task)
+            throws IOException, InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.maxmind.db.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Counters for CacheStats that many threads can update at once. Each counter
+ * is split into stripes, one of which each thread adds to, so that threads
+ * rarely contend on the same cache line, and an atomic add costs little
+ * more than a plain one. A snapshot adds up the stripes.
+ */
+final class StatsCounter {
+
+    private static final int HITS = 0;
+    private static final int MISSES = 1;
+    private static final int LOADS = 2;
+    private static final int LOAD_TIME = 3;
+    private static final int EVICTIONS = 4;
+
+    // 16 longs are 128 bytes, which keeps each stripe on its own cache
+    // lines, including when the hardware fetches lines in pairs.
+    private static final int STRIDE = 16;
+
+    private final AtomicLongArray counts;
+    private final int mask;
+
+    StatsCounter() {
+        int stripes = Integer.highestOneBit(
+                Math.max(Runtime.getRuntime().availableProcessors(), 2) - 1) << 1;
+        // The first stride is left empty as padding.
+        this.counts = new AtomicLongArray((stripes + 1) * STRIDE);
+        this.mask = stripes - 1;
+    }
+
+    void recordHit() {
+        this.add(this.stripe() + HITS, 1);
+    }
+
+    void recordMiss() {
+        this.add(this.stripe() + MISSES, 1);
+    }
+
+    void recordLoad(long nanos) {
+        int base = this.stripe();
+        this.add(base + LOADS, 1);
+        this.add(base + LOAD_TIME, nanos);
+    }
+
+    void recordEviction() {
+        this.add(this.stripe() + EVICTIONS, 1);
+    }
+
+    CacheStats snapshot(long size) {
+        return new CacheStats(this.sum(HITS), this.sum(MISSES), this.sum(LOADS),
+                this.sum(LOAD_TIME), this.sum(EVICTIONS), size);
+    }
+
+    private void add(int index, long n) {
+        this.counts.getAndAdd(index, n);
+    }
+
+    private long sum(int counter) {
+        long sum = 0;
+        for (int i = STRIDE + counter; i < this.counts.length(); i += STRIDE) {
+            sum += this.counts.get(i);
+        }
+        return sum;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & this.mask) * STRIDE + STRIDE;
+    }
+}
@@ -0,0 +1,170 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * A small first-level cache in front of a shared cache. The first level is
+ * split into stripes, and each thread uses the stripe its id hashes to. A
+ * stripe is a direct-mapped table of the most recently used values, so a
+ * first-level hit reads one slot of the thread's own stripe and leaves the
+ * entries of the shared cache alone. The shared cache, and the bookkeeping
+ * its hits do, is only reached on a first-level miss.
+ * </p>
+ * <p>
+ * This helps on machines with many cores, where the hot entries of the shared
+ * cache are otherwise touched by every lookup. Stripes are chosen by thread
+ * id rather than bound to threads, so a large number of virtual or
+ * short-lived threads shares a fixed number of stripes.
+ * </p>
+ * <p>
+ * The first level holds on to values that the shared cache may since have
+ * evicted, up to its size. As the values at an offset never change, this
+ * only affects memory use.
+ * </p>
+ * <pre>
+ * Reader reader = new Reader(database, new TieredCache(new BoundedCache()));
+ * </pre>
+ */
+public class TieredCache implements InstrumentedCache, PinnableCache, PeekableCache {
+
+    private static final int DEFAULT_STRIPE_SIZE = 256;
+
+    // Leaves the slots of neighbouring stripes on separate cache lines
+    private static final int PADDING = 16;
+
+    private final NodeCache cache;
+    private final AtomicReferenceArray<Entry> stripes;
+    private final int stripeMask;
+    private final int stripeSize;
+    private final int slotShift;
+    private final StatsCounter stats = new StatsCounter();
+
+    private static final class Entry {
+        final int key;
+        final JsonElement value;
+
+        Entry(int key, JsonElement value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * @param cache the shared cache.
+     */
+    public TieredCache(NodeCache cache) {
+        this(cache, Runtime.getRuntime().availableProcessors() * 2, DEFAULT_STRIPE_SIZE);
+    }
+
+    /**
+     * @param cache      the shared cache.
+     * @param stripes    the number of first-level stripes, rounded up to a
+     *                   power of two.
+     * @param stripeSize the number of entries in each stripe, rounded up to a
+     *                   power of two.
+     */
+    public TieredCache(NodeCache cache, int stripes, int stripeSize) {
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null");
+        }
+        if (stripes <= 0 || stripeSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The number and size of the stripes must be positive");
+        }
+        this.cache = cache;
+        int stripeCount = Integer.highestOneBit(Math.max(stripes, 2) - 1) << 1;
+        int size = Integer.highestOneBit(Math.max(stripeSize, 2) - 1) << 1;
+        this.stripeMask = stripeCount - 1;
+        this.stripeSize = size + PADDING;
+        this.slotShift = Integer.numberOfLeadingZeros(size) + 1;
+        this.stripes = new AtomicReferenceArray<>(stripeCount * this.stripeSize + PADDING);
+    }
+
+    @Override
+    public JsonElement get(int key, Loader loader) throws IOException {
+        int index = this.slot(key);
+        Entry entry = this.stripes.get(index);
+        if (entry != null && entry.key == key) {
+            this.stats.recordHit();
+            return entry.value;
+        }
+        this.stats.recordMiss();
+        JsonElement value = this.cache.get(key, loader);
+        this.stripes.lazySet(index, new Entry(key, value));
+        return value;
+    }
+
+    /**
+     * Looks up the value in the first level, and then in the shared cache
+     * if it is a {@link PeekableCache}.
+     */
+    @Override
+    public JsonElement getIfPresent(int key) {
+        int index = this.slot(key);
+        Entry entry = this.stripes.get(index);
+        if (entry != null && entry.key == key) {
+            this.stats.recordHit();
+            return entry.value;
+        }
+        if (!(this.cache instanceof PeekableCache)) {
+            return null;
+        }
+        JsonElement value = ((PeekableCache) this.cache).getIfPresent(key);
+        if (value != null) {
+            this.stats.recordMiss();
+            this.stripes.lazySet(index, new Entry(key, value));
+        }
+        return value;
+    }
+
+    /**
+     * Pins the keys in the shared cache, if it is a {@link PinnableCache}.
+     */
+    @Override
+    public void pin(int[] keys) {
+        if (this.cache instanceof PinnableCache) {
+            ((PinnableCache) this.cache).pin(keys);
+        }
+    }
+
+    /**
+     * @return whether the shared cache can pin.
+     */
+    @Override
+    public boolean canPin() {
+        return this.cache instanceof PinnableCache && ((PinnableCache) this.cache).canPin();
+    }
+
+    /**
+     * @return the statistics of the shared cache, with the first-level hits
+     * added to its hits. If the shared cache is not instrumented, the hits
+     * and misses of the first level alone.
+     */
+    @Override
+    public CacheStats getStats() {
+        CacheStats first = this.stats.snapshot(0);
+        if (!(this.cache instanceof InstrumentedCache)) {
+            return first;
+        }
+        CacheStats shared = ((InstrumentedCache) this.cache).getStats();
+        return new CacheStats(first.getHitCount() + shared.getHitCount(),
+                shared.getMissCount(), shared.getLoadCount(),
+                shared.getTotalLoadTime(), shared.getEvictionCount(),
+                shared.getSize());
+    }
+
+    private int slot(int key) {
+        return this.stripe() * this.stripeSize + PADDING
+                + ((key * 0x9E3779B9) >>> this.slotShift);
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & this.stripeMask;
+    }
+}
@@ -45,7 +45,7 @@ public abstract class AbstractRecord {
 
     @Override
     public int hashCode() {
-        return geoNameId;
+        return Objects.hashCode(geoNameId);
     }
 
     @Override
@@ -0,0 +1,54 @@
+package com.maxmind.db.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * This class provides a model for the data returned by the GeoLite2 ASN
+ * database.
+ */
+public class AsnResponse {
+
+    private final Long autonomousSystemNumber;
+    private final String autonomousSystemOrganization;
+
+    public AsnResponse(Long autonomousSystemNumber, String autonomousSystemOrganization) {
+        this.autonomousSystemNumber = autonomousSystemNumber;
+        this.autonomousSystemOrganization = autonomousSystemOrganization;
+    }
+
+    public static AsnResponse of(JsonElement jsonElement) {
+        JsonObject response = jsonElement.getAsJsonObject();
+
+        JsonElement number = response.get("autonomous_system_number");
+        JsonElement organization = response.get("autonomous_system_organization");
+        return new AsnResponse(number == null ? null : number.getAsLong(),
+                organization == null ? null : organization.getAsString());
+    }
+
+    /**
+     * @return The <a
+     * href="http://en.wikipedia.org/wiki/Autonomous_system_(Internet)">autonomous
+     * system number</a> associated with the IP address.
+     */
+    public Long getAutonomousSystemNumber() {
+        return autonomousSystemNumber;
+    }
+
+    /**
+     * @return The organization associated with the registered <a
+     * href="http://en.wikipedia.org/wiki/Autonomous_system_(Internet)">autonomous
+     * system number</a> for the IP address.
+     */
+    public String getAutonomousSystemOrganization() {
+        return autonomousSystemOrganization;
+    }
+
+    @Override
+    public String toString() {
+        return "AsnResponse{" +
+                "autonomousSystemNumber=" + autonomousSystemNumber +
+                ", autonomousSystemOrganization='" + autonomousSystemOrganization + '\'' +
+                '}';
+    }
+}
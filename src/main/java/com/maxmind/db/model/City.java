@@ -0,0 +1,49 @@
+package com.maxmind.db.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Contains data for the city record associated with an IP address.
+ * </p>
+ * <p>
+ * This record is returned by the City end point.
+ * </p>
+ * <p>
+ * Do not use any of the city names as a database or map key. Use the value
+ * returned by {@link #getGeoNameId} instead.
+ * </p>
+ */
+public class City extends AbstractRecord {
+
+    public City(String name, Integer geoNameId) {
+        super(name, geoNameId);
+    }
+
+    public static City of(JsonElement jsonElement) {
+        return City.of(jsonElement, Models.ENGLISH);
+    }
+
+    /**
+     * @param jsonElement the city record.
+     * @param locales     the locales to take the name from, in order of
+     *                    preference.
+     * @return the model of the record, named in the first of the locales it
+     * has a name in.
+     */
+    public static City of(JsonElement jsonElement, List<String> locales) {
+        JsonObject cityJson = jsonElement.getAsJsonObject();
+
+        JsonElement geoNameId = cityJson.get("geoname_id");
+        return new City(Models.name(cityJson, locales),
+                geoNameId == null ? null : geoNameId.getAsInt());
+    }
+
+    @Override
+    public String toString() {
+        return "City{} " + super.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package com.maxmind.db.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class provides a model for the data returned by the GeoIP2 Precision:
+ * City end point. Any of the records is <code>null</code> if the database has
+ * no data for it.
+ */
+public class CityResponse {
+
+    private final City city;
+    private final Continent continent;
+    private final Country country;
+    private final Location location;
+    private final Postal postal;
+    private final List<Subdivision> subdivisions;
+
+    public CityResponse(City city, Continent continent, Country country,
+                        Location location, Postal postal,
+                        List<Subdivision> subdivisions) {
+        this.city = city;
+        this.continent = continent;
+        this.country = country;
+        this.location = location;
+        this.postal = postal;
+        this.subdivisions = subdivisions == null
+                ? Collections.<Subdivision>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(subdivisions));
+    }
+
+    public static CityResponse of(JsonElement jsonElement) {
+        return CityResponse.of(jsonElement, Models.ENGLISH);
+    }
+
+    /**
+     * @param jsonElement the record.
+     * @param locales     the locales to take the names from, in order of
+     *                    preference.
+     * @return the model of the record, with its places named in the first
+     * of the locales each has a name in.
+     */
+    public static CityResponse of(JsonElement jsonElement, List<String> locales) {
+        JsonObject response = jsonElement.getAsJsonObject();
+
+        JsonElement city = response.get("city");
+        JsonElement continent = response.get("continent");
+        JsonElement country = response.get("country");
+        JsonElement location = response.get("location");
+        JsonElement postal = response.get("postal");
+        JsonElement subdivisionsJson = response.get("subdivisions");
+
+        List<Subdivision> subdivisions = new ArrayList<>();
+        if (subdivisionsJson != null) {
+            for (JsonElement subdivision : (JsonArray) subdivisionsJson) {
+                subdivisions.add(Subdivision.of(subdivision, locales));
+            }
+        }
+        return new CityResponse(
+                city == null ? null : City.of(city, locales),
+                continent == null ? null : Continent.of(continent, locales),
+                country == null ? null : Country.of(country, locales),
+                location == null ? null : Location.of(location),
+                postal == null ? null : Postal.of(postal),
+                subdivisions);
+    }
+
+    /**
+     * @return City record for the requested IP address.
+     */
+    public City getCity() {
+        return city;
+    }
+
+    /**
+     * @return Continent record for the requested IP address.
+     */
+    public Continent getContinent() {
+        return continent;
+    }
+
+    /**
+     * @return Country record for the requested IP address. This object represents the country where MaxMind believes
+     * the end user is located.
+     */
+    public Country getCountry() {
+        return country;
+    }
+
+    /**
+     * @return Location record for the requested IP address.
+     */
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * @return Postal record for the requested IP address.
+     */
+    public Postal getPostal() {
+        return postal;
+    }
+
+    /**
+     * @return The subdivisions for the requested IP address, from the
+     * largest to the smallest, such as a country's regions and then their
+     * provinces. The list is empty if there are none.
+     */
+    public List<Subdivision> getSubdivisions() {
+        return subdivisions;
+    }
+
+    @Override
+    public String toString() {
+        return "CityResponse{" +
+                "city=" + city +
+                ", continent=" + continent +
+                ", country=" + country +
+                ", location=" + location +
+                ", postal=" + postal +
+                ", subdivisions=" + subdivisions +
+                '}';
+    }
+}
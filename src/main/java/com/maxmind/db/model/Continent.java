@@ -3,6 +3,8 @@ package com.maxmind.db.model;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import java.util.List;
+
 /**
  * <p>
  * Contains data for the continent record associated with an IP address.
@@ -26,12 +28,24 @@ public class Continent extends AbstractRecord {
     }
 
     public static Continent of(JsonElement jsonElement) {
+        return Continent.of(jsonElement, Models.ENGLISH);
+    }
+
+    /**
+     * @param jsonElement the continent record.
+     * @param locales     the locales to take the name from, in order of
+     *                    preference.
+     * @return the model of the record, named in the first of the locales it
+     * has a name in.
+     */
+    public static Continent of(JsonElement jsonElement, List<String> locales) {
         JsonObject continentJson = jsonElement.getAsJsonObject();
 
-        int geoNameId = continentJson.getAsJsonPrimitive("geoname_id").getAsInt();
-        String code = continentJson.getAsJsonPrimitive("code").getAsString();
-        String continentName = continentJson.getAsJsonObject("names").get("en").getAsString();
-        return new Continent(continentName, geoNameId, code);
+        JsonElement geoNameId = continentJson.get("geoname_id");
+        JsonElement code = continentJson.get("code");
+        return new Continent(Models.name(continentJson, locales),
+                geoNameId == null ? null : geoNameId.getAsInt(),
+                code == null ? null : code.getAsString());
     }
 
     /**
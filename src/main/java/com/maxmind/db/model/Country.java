@@ -3,6 +3,8 @@ package com.maxmind.db.model;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import java.util.List;
+
 /**
  * <p>
  * Contains data for the country record associated with an IP address.
@@ -28,12 +30,24 @@ public class Country extends AbstractRecord {
     }
 
     public static Country of(JsonElement jsonElement) {
+        return Country.of(jsonElement, Models.ENGLISH);
+    }
+
+    /**
+     * @param jsonElement the country record.
+     * @param locales     the locales to take the name from, in order of
+     *                    preference.
+     * @return the model of the record, named in the first of the locales it
+     * has a name in.
+     */
+    public static Country of(JsonElement jsonElement, List<String> locales) {
         JsonObject countryJson = jsonElement.getAsJsonObject();
 
-        int countryGeoName = countryJson.getAsJsonPrimitive("geoname_id").getAsInt();
-        String isoCode = countryJson.getAsJsonPrimitive("iso_code").getAsString();
-        String countryName = countryJson.getAsJsonObject("names").get("en").getAsString();
-        return new Country(isoCode, countryGeoName, countryName);
+        JsonElement geoNameId = countryJson.get("geoname_id");
+        JsonElement isoCode = countryJson.get("iso_code");
+        return new Country(isoCode == null ? null : isoCode.getAsString(),
+                geoNameId == null ? null : geoNameId.getAsInt(),
+                Models.name(countryJson, locales));
     }
 
     /**
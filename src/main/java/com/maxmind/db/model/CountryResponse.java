@@ -3,6 +3,8 @@ package com.maxmind.db.model;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import java.util.List;
+
 /**
  * This class provides a model for the data returned by the GeoIP2 Precision:
  * Country end point.
@@ -18,11 +20,24 @@ public class CountryResponse {
     }
 
     public static CountryResponse of(JsonElement jsonElement) {
+        return CountryResponse.of(jsonElement, Models.ENGLISH);
+    }
+
+    /**
+     * @param jsonElement the record.
+     * @param locales     the locales to take the names from, in order of
+     *                    preference.
+     * @return the model of the record, with its places named in the first
+     * of the locales each has a name in.
+     */
+    public static CountryResponse of(JsonElement jsonElement, List<String> locales) {
         JsonObject response = jsonElement.getAsJsonObject();
 
-        Country country = Country.of(response.get("country"));
-        Continent continent = Continent.of(response.get("continent"));
-        return new CountryResponse(country, continent);
+        JsonElement country = response.get("country");
+        JsonElement continent = response.get("continent");
+        return new CountryResponse(
+                country == null ? null : Country.of(country, locales),
+                continent == null ? null : Continent.of(continent, locales));
     }
 
     /**
@@ -0,0 +1,86 @@
+package com.maxmind.db.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * <p>
+ * Contains data for the location record associated with an IP address.
+ * </p>
+ * <p>
+ * This record is returned by the City end point.
+ * </p>
+ */
+public class Location {
+
+    private final Double latitude;
+    private final Double longitude;
+    private final Integer accuracyRadius;
+    private final String timeZone;
+
+    public Location(Double latitude, Double longitude, Integer accuracyRadius,
+                    String timeZone) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracyRadius = accuracyRadius;
+        this.timeZone = timeZone;
+    }
+
+    public static Location of(JsonElement jsonElement) {
+        JsonObject locationJson = jsonElement.getAsJsonObject();
+
+        JsonElement latitude = locationJson.get("latitude");
+        JsonElement longitude = locationJson.get("longitude");
+        JsonElement accuracyRadius = locationJson.get("accuracy_radius");
+        JsonElement timeZone = locationJson.get("time_zone");
+        return new Location(latitude == null ? null : latitude.getAsDouble(),
+                longitude == null ? null : longitude.getAsDouble(),
+                accuracyRadius == null ? null : accuracyRadius.getAsInt(),
+                timeZone == null ? null : timeZone.getAsString());
+    }
+
+    /**
+     * @return The approximate latitude of the location associated with the
+     * IP address. This value is not precise and should not be used to
+     * identify a particular address or household.
+     */
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return The approximate longitude of the location associated with the
+     * IP address. This value is not precise and should not be used to
+     * identify a particular address or household.
+     */
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return The approximate accuracy radius in kilometers around the
+     * latitude and longitude for the IP address.
+     */
+    public Integer getAccuracyRadius() {
+        return accuracyRadius;
+    }
+
+    /**
+     * @return The time zone associated with location, as specified by the
+     * <a href="http://www.iana.org/time-zones">IANA Time Zone Database</a>,
+     * e.g., "America/New_York".
+     */
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    @Override
+    public String toString() {
+        return "Location{" +
+                "latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", accuracyRadius=" + accuracyRadius +
+                ", timeZone='" + timeZone + '\'' +
+                '}';
+    }
+}
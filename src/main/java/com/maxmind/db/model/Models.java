@@ -0,0 +1,37 @@
+package com.maxmind.db.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Helpers for the of(JsonElement) methods of the models.
+ */
+final class Models {
+
+    static final List<String> ENGLISH = Collections.singletonList("en");
+
+    private Models() {
+    }
+
+    /*
+     * Returns the name in the first of the locales that the "names" map of
+     * the record has, or null if it has none of them.
+     */
+    static String name(JsonObject record, List<String> locales) {
+        JsonElement names = record.get("names");
+        if (names == null) {
+            return null;
+        }
+        JsonObject namesJson = names.getAsJsonObject();
+        for (String locale : locales) {
+            JsonElement name = namesJson.get(locale);
+            if (name != null) {
+                return name.getAsString();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.maxmind.db.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * <p>
+ * Contains data for the postal record associated with an IP address.
+ * </p>
+ * <p>
+ * This record is returned by the City end point.
+ * </p>
+ */
+public class Postal {
+
+    private final String code;
+
+    public Postal(String code) {
+        this.code = code;
+    }
+
+    public static Postal of(JsonElement jsonElement) {
+        JsonObject postalJson = jsonElement.getAsJsonObject();
+
+        JsonElement code = postalJson.get("code");
+        return new Postal(code == null ? null : code.getAsString());
+    }
+
+    /**
+     * @return The postal code of the location. Postal codes are not
+     * available for all countries. In some countries, this will only contain
+     * part of the postal code.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    @Override
+    public String toString() {
+        return "Postal{" +
+                "code='" + code + '\'' +
+                '}';
+    }
+}
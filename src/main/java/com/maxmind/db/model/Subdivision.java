@@ -0,0 +1,67 @@
+package com.maxmind.db.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Contains data for a subdivision associated with an IP address, such as a
+ * state or province.
+ * </p>
+ * <p>
+ * This record is returned by the City end point.
+ * </p>
+ * <p>
+ * Do not use any of the subdivision names as a database or map key. Use the
+ * value returned by {@link #getGeoNameId} or {@link #getIsoCode} instead.
+ * </p>
+ */
+public class Subdivision extends AbstractRecord {
+
+    private final String isoCode;
+
+    public Subdivision(String isoCode, Integer geoNameId, String name) {
+        super(name, geoNameId);
+
+        this.isoCode = isoCode;
+    }
+
+    public static Subdivision of(JsonElement jsonElement) {
+        return Subdivision.of(jsonElement, Models.ENGLISH);
+    }
+
+    /**
+     * @param jsonElement the subdivision record.
+     * @param locales     the locales to take the name from, in order of
+     *                    preference.
+     * @return the model of the record, named in the first of the locales it
+     * has a name in.
+     */
+    public static Subdivision of(JsonElement jsonElement, List<String> locales) {
+        JsonObject subdivisionJson = jsonElement.getAsJsonObject();
+
+        JsonElement geoNameId = subdivisionJson.get("geoname_id");
+        JsonElement isoCode = subdivisionJson.get("iso_code");
+        return new Subdivision(isoCode == null ? null : isoCode.getAsString(),
+                geoNameId == null ? null : geoNameId.getAsInt(),
+                Models.name(subdivisionJson, locales));
+    }
+
+    /**
+     * @return A string of up to three characters containing the subdivision
+     * portion of the <a href="http://en.wikipedia.org/wiki/ISO_3166-2">ISO
+     * 3166-2 code</a>. This attribute is returned by the City end point.
+     */
+    public String getIsoCode() {
+        return isoCode;
+    }
+
+    @Override
+    public String toString() {
+        return "Subdivision{" +
+                "isoCode='" + isoCode + '\'' +
+                "} " + super.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonElement;
+import com.maxmind.db.cache.CHMCache;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static com.maxmind.db.ReaderTest.getFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncReaderTest {
+
+    private Reader reader;
+
+    // Runs the tasks on the thread that submits them, counting them
+    private static final class CountingExecutor implements Executor {
+        int tasks;
+
+        @Override
+        public void execute(Runnable task) {
+            this.tasks++;
+            task.run();
+        }
+    }
+
+    @After
+    public void closeReader() throws IOException {
+        if (this.reader != null) {
+            this.reader.close();
+        }
+    }
+
+    @Test
+    public void testCachedRecordsAreAnsweredOnCallingThread() throws Exception {
+        this.reader = new Reader.Builder(getFile("MaxMind-DB-test-decoder.mmdb"))
+                .withCache(new CHMCache())
+                .cacheRecords(true)
+                .build();
+        CountingExecutor executor = new CountingExecutor();
+        AsyncReader async = new AsyncReader(this.reader, executor);
+        InetAddress address = InetAddress.getByName("::1.1.1.0");
+
+        JsonElement expected = this.reader.get(address);
+        LookupFuture<Record> record = async.getRecord(address);
+        assertTrue(record.isDone());
+        assertEquals(expected, record.get().getData());
+        assertEquals(this.reader.getRecord(address).getNetwork().toString(),
+                record.get().getNetwork().toString());
+        assertEquals(expected, async.get(address).get());
+        assertEquals(0, executor.tasks);
+    }
+
+    @Test
+    public void testUncachedRecordsAreDecodedOnExecutor() throws Exception {
+        this.reader = new Reader(getFile("MaxMind-DB-test-decoder.mmdb"));
+        CountingExecutor executor = new CountingExecutor();
+        AsyncReader async = new AsyncReader(this.reader, executor);
+        InetAddress address = InetAddress.getByName("::1.1.1.0");
+
+        assertEquals(this.reader.get(address), async.get(address).get());
+        assertEquals(1, executor.tasks);
+        assertEquals(this.reader.get(address), async.get(address).get());
+        assertEquals(2, executor.tasks);
+    }
+
+    @Test
+    public void testNoDataIsAnsweredOnCallingThread() throws Exception {
+        this.reader = new Reader(getFile("MaxMind-DB-test-ipv4-24.mmdb"));
+        CountingExecutor executor = new CountingExecutor();
+        AsyncReader async = new AsyncReader(this.reader, executor);
+        InetAddress address = InetAddress.getByName("1.1.1.33");
+
+        assertNull(async.get(address).get());
+        assertNull(async.getRecord(address).get().getData());
+        assertNull(async.getCountry(address).get());
+        assertNull(async.getCity(address).get());
+        assertNull(async.getAsn(address).get());
+        assertEquals(0, executor.tasks);
+    }
+
+    @Test
+    public void testDefaultExecutor() throws Exception {
+        this.reader = new Reader(getFile("MaxMind-DB-test-decoder.mmdb"));
+        AsyncReader async = new AsyncReader(this.reader);
+        InetAddress address = InetAddress.getByName("::1.1.1.0");
+
+        assertEquals(this.reader.get(address), async.get(address).get());
+    }
+
+    @Test
+    public void testFallbackPoolIsBounded() throws Exception {
+        ThreadPoolExecutor pool = AsyncReader.DefaultExecutor.newBoundedPool(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            pool.execute(blocked);
+            pool.execute(blocked);
+            try {
+                pool.execute(blocked);
+                fail("Expected the pool to be full");
+            } catch (RejectedExecutionException expected) {
+                // expected
+            }
+            assertEquals(1, pool.getPoolSize());
+            assertTrue(pool.getThreadFactory().newThread(blocked).isDaemon());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectedLookupFails() throws Exception {
+        this.reader = new Reader(getFile("MaxMind-DB-test-decoder.mmdb"));
+        AsyncReader async = new AsyncReader(this.reader, new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                throw new RejectedExecutionException("shut down");
+            }
+        });
+
+        try {
+            async.get(InetAddress.getByName("::1.1.1.0")).get();
+            fail("Expected the lookup to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testClosedReaderFails() throws Exception {
+        this.reader = new Reader(getFile("MaxMind-DB-test-decoder.mmdb"));
+        AsyncReader async = new AsyncReader(this.reader, new CountingExecutor());
+        this.reader.close();
+
+        try {
+            async.get(InetAddress.getByName("::1.1.1.0")).get();
+            fail("Expected the lookup to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ClosedDatabaseException);
+        }
+    }
+}
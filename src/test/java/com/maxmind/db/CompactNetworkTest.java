@@ -0,0 +1,122 @@
+package com.maxmind.db;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactNetworkTest {
+
+    @Test
+    public void testIpV4() throws UnknownHostException {
+        CompactNetwork network = CompactNetwork.of(InetAddress.getByName("192.168.213.111"), 31);
+
+        assertTrue(network.isIpV4());
+        assertEquals(31, network.getPrefixLength());
+        assertEquals(0xC0A8D56E, network.getIpV4Address());
+        assertEquals("192.168.213.110/31", network.toString());
+        assertEquals("192.168.213.110/32", network.first().toString());
+        assertEquals("192.168.213.111/32", network.last().toString());
+        assertEquals(InetAddress.getByName("192.168.213.110"), network.toInetAddress());
+        assertEquals("0.0.0.0/0", CompactNetwork.ofIpV4(-1, 0).toString());
+        assertEquals("255.255.255.255/32", CompactNetwork.ofIpV4(0, 0).last().toString());
+    }
+
+    @Test
+    public void testIpV6() throws UnknownHostException {
+        CompactNetwork network = CompactNetwork.of(
+                InetAddress.getByName("2001:0db8:85a3:0000:0000:8a2e:0370:7334"), 28);
+
+        assertFalse(network.isIpV4());
+        assertEquals(0x20010db000000000L, network.getHigh());
+        assertEquals(0, network.getLow());
+        assertEquals("2001:db0:0:0:0:0:0:0/28", network.toString());
+        assertEquals("2001:dbf:ffff:ffff:ffff:ffff:ffff:ffff/128",
+                network.last().toString());
+        assertEquals("2001:db8:85a3:0:0:8a2e:370:7300/120", CompactNetwork.of(
+                InetAddress.getByName("2001:db8:85a3::8a2e:370:7334"), 120).toString());
+    }
+
+    @Test
+    public void testMatchesNetwork() throws UnknownHostException {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            byte[] raw = new byte[i % 2 == 0 ? 4 : 16];
+            random.nextBytes(raw);
+            if (raw.length == 16) {
+                // Not an IPv4-mapped address, which InetAddress turns into IPv4
+                raw[0] = 0x20;
+            }
+            InetAddress address = InetAddress.getByAddress(raw);
+            int prefixLength = random.nextInt(raw.length * 8 + 1);
+            Network network = new Network(address, prefixLength);
+            CompactNetwork compact = network.toCompactNetwork();
+
+            assertEquals(network.toString(), compact.toString());
+            assertEquals(network.getNetworkAddress(), compact.toInetAddress());
+            assertEquals(network.toString(), compact.toNetwork().toString());
+            assertTrue(compact.contains(address));
+        }
+    }
+
+    @Test
+    public void testContains() throws UnknownHostException {
+        CompactNetwork network = CompactNetwork.of(InetAddress.getByName("10.1.0.0"), 16);
+
+        assertTrue(network.contains(network));
+        assertTrue(network.contains(CompactNetwork.of(InetAddress.getByName("10.1.2.0"), 24)));
+        assertTrue(network.contains(network.last()));
+        assertFalse(network.contains(CompactNetwork.of(InetAddress.getByName("10.0.0.0"), 8)));
+        assertFalse(network.contains(CompactNetwork.of(InetAddress.getByName("10.2.0.0"), 24)));
+        assertFalse(network.contains(InetAddress.getByName("10.2.0.1")));
+        assertFalse(network.contains(InetAddress.getByName("::a01:1")));
+
+        CompactNetwork ipV6 = CompactNetwork.ofIpV6(0x2001000000000000L, 0, 16);
+        assertTrue(ipV6.contains(InetAddress.getByName("2001:ffff::1")));
+        assertFalse(ipV6.contains(InetAddress.getByName("2002::1")));
+        assertTrue(CompactNetwork.ofIpV6(0, 0, 0).contains(ipV6));
+        assertFalse(CompactNetwork.ofIpV6(0, 0, 0).contains(network));
+    }
+
+    @Test
+    public void testOrder() {
+        List<CompactNetwork> networks = new ArrayList<>(Arrays.asList(
+                CompactNetwork.ofIpV6(0x8000000000000000L, 0, 1),
+                CompactNetwork.ofIpV4(0x80000000, 8),
+                CompactNetwork.ofIpV4(0x80000000, 1),
+                CompactNetwork.ofIpV6(0, 1, 128),
+                CompactNetwork.ofIpV4(0x01000000, 8)));
+        Collections.sort(networks);
+
+        assertEquals(Arrays.asList(
+                CompactNetwork.ofIpV4(0x01000000, 8),
+                CompactNetwork.ofIpV4(0x80000000, 1),
+                CompactNetwork.ofIpV4(0x80000000, 8),
+                CompactNetwork.ofIpV6(0, 1, 128),
+                CompactNetwork.ofIpV6(0x8000000000000000L, 0, 1)), networks);
+    }
+
+    @Test
+    public void testEquality() {
+        assertEquals(CompactNetwork.ofIpV4(0x0A010203, 16), CompactNetwork.ofIpV4(0x0A01FFFF, 16));
+        assertEquals(CompactNetwork.ofIpV4(0x0A010203, 16).hashCode(),
+                CompactNetwork.ofIpV4(0x0A01FFFF, 16).hashCode());
+        assertNotEquals(CompactNetwork.ofIpV4(0, 0), CompactNetwork.ofIpV6(0, 0, 0));
+        assertNotEquals(CompactNetwork.ofIpV4(0, 8), CompactNetwork.ofIpV4(0, 9));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrefixLength() {
+        CompactNetwork.ofIpV4(0, 33);
+    }
+}
@@ -0,0 +1,98 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Map;
+
+import static com.maxmind.db.ReaderTest.getFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompositeReaderTest {
+
+    private Reader country;
+    private Reader asn;
+
+    @Before
+    public void setUp() throws IOException {
+        this.country = new Reader(getFile("GeoIP2-Country-Test.mmdb"));
+        this.asn = new Reader(getFile("GeoLite2-ASN-Test.mmdb"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (this.country != null) {
+            this.country.close();
+        }
+        if (this.asn != null) {
+            this.asn.close();
+        }
+    }
+
+    @Test
+    public void testMergesProjectedFields() throws IOException {
+        CompositeReader composite = new CompositeReader.Builder()
+                .add(this.country, "country")
+                .add(this.asn)
+                .build();
+
+        for (String ip : new String[]{"81.2.69.160", "1.128.0.0", "2001:218::", "10.0.0.1"}) {
+            InetAddress address = InetAddress.getByName(ip);
+            Record countryRecord = this.country.getRecord(address);
+            Record asnRecord = this.asn.getRecord(address);
+
+            JsonObject expected = new JsonObject();
+            if (countryRecord.getData() != null) {
+                JsonObject data = countryRecord.getData().getAsJsonObject();
+                if (data.has("country")) {
+                    expected.add("country", data.get("country"));
+                }
+            }
+            if (asnRecord.getData() != null) {
+                for (Map.Entry<String, JsonElement> entry
+                        : asnRecord.getData().getAsJsonObject().entrySet()) {
+                    expected.add(entry.getKey(), entry.getValue());
+                }
+            }
+
+            Record merged = composite.getRecord(address);
+            if (countryRecord.getData() == null && asnRecord.getData() == null) {
+                assertNull(merged.getData());
+            } else {
+                assertEquals(ip, expected, merged.getData());
+            }
+            assertEquals(ip, Math.max(countryRecord.getNetwork().getPrefixLength(),
+                    asnRecord.getNetwork().getPrefixLength()),
+                    merged.getNetwork().getPrefixLength());
+        }
+
+        JsonObject gb = composite.get(InetAddress.getByName("81.2.69.160"));
+        assertEquals("GB", gb.getAsJsonObject("country").get("iso_code").getAsString());
+        assertFalse(gb.has("continent"));
+    }
+
+    @Test
+    public void testFirstDatabaseWins() throws IOException {
+        CompositeReader composite = new CompositeReader.Builder()
+                .add(this.country, "country")
+                .add(this.country)
+                .build();
+
+        JsonObject merged = composite.get(InetAddress.getByName("81.2.69.160"));
+        assertTrue(merged.has("continent"));
+        assertEquals(this.country.get(InetAddress.getByName("81.2.69.160")), merged);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoReaders() {
+        new CompositeReader.Builder().build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.maxmind.db;
+
+import com.maxmind.db.model.CountryResponse;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Random;
+
+import static com.maxmind.db.ReaderTest.getFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CountryCodeIndexTest {
+
+    @Test
+    public void testEytzingerOrder() {
+        // The sorted indexes 0 to 6 as a complete binary search tree, level
+        // by level
+        assertArrayEquals(new int[]{0, 3, 1, 5, 0, 2, 4, 6},
+                CountryCodeIndex.eytzingerOrder(7));
+        assertArrayEquals(new int[]{0, 1, 0, 2}, CountryCodeIndex.eytzingerOrder(3));
+        assertArrayEquals(new int[]{0}, CountryCodeIndex.eytzingerOrder(0));
+    }
+
+    @Test
+    public void testMatchesReader() throws IOException {
+        try (Reader reader = new Reader(getFile("GeoIP2-Country-Test.mmdb"))) {
+            CountryCodeIndex index = CountryCodeIndex.build(reader);
+
+            assertEquals("GB", index.countryCode(InetAddress.getByName("81.2.69.160")));
+            assertEquals("GB", index.countryCode(InetAddress.getByName("::ffff:81.2.69.160")));
+            assertEquals("GB", index.countryCode(InetAddress.getByName("2002:5102:45a0::")));
+            assertNull(index.countryCode(InetAddress.getByName("10.0.0.1")));
+
+            Random random = new Random(1);
+            for (int i = 0; i < 10000; i++) {
+                byte[] raw = new byte[i % 2 == 0 ? 4 : 16];
+                random.nextBytes(raw);
+                InetAddress address = InetAddress.getByAddress(raw);
+                CountryResponse response = reader.getCountry(address);
+                assertEquals(address.toString(),
+                        response == null || response.getCountry() == null
+                                ? null : response.getCountry().getIsoCode(),
+                        index.countryCode(address));
+            }
+        }
+    }
+}
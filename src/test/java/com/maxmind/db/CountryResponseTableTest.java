@@ -0,0 +1,47 @@
+package com.maxmind.db;
+
+import com.maxmind.db.cache.NoCache;
+import com.maxmind.db.model.CountryResponse;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CountryResponseTableTest {
+
+    // {"country": {"geoname_id": 1}} at offsets 0 and 23, and
+    // {"country": {"geoname_id": 2}} at 46
+    private static final byte[] DATA = {
+            (byte) 0xe1, 0x47, 0x63, 0x6f, 0x75, 0x6e, 0x74, 0x72, 0x79,
+            (byte) 0xe1, 0x4a, 0x67, 0x65, 0x6f, 0x6e, 0x61, 0x6d, 0x65, 0x5f, 0x69, 0x64,
+            (byte) 0xc1, 0x01,
+            (byte) 0xe1, 0x47, 0x63, 0x6f, 0x75, 0x6e, 0x74, 0x72, 0x79,
+            (byte) 0xe1, 0x4a, 0x67, 0x65, 0x6f, 0x6e, 0x61, 0x6d, 0x65, 0x5f, 0x69, 0x64,
+            (byte) 0xc1, 0x01,
+            (byte) 0xe1, 0x47, 0x63, 0x6f, 0x75, 0x6e, 0x74, 0x72, 0x79,
+            (byte) 0xe1, 0x4a, 0x67, 0x65, 0x6f, 0x6e, 0x61, 0x6d, 0x65, 0x5f, 0x69, 0x64,
+            (byte) 0xc1, 0x02};
+
+    @Test
+    public void testSharedInstances() throws IOException {
+        Decoder decoder = new Decoder(NoCache.getInstance(), ByteBuffer.wrap(DATA), 0);
+        CountryResponseTable table = CountryResponseTable.build(decoder, new int[]{0, 23, 46},
+                Locales.ENGLISH);
+
+        assertEquals(3, table.size());
+        CountryResponse first = table.get(0);
+        assertSame(first, table.get(0));
+        assertEquals(Integer.valueOf(1), first.getCountry().getGeoNameId());
+        assertNull(first.getContinent());
+
+        // Equal countries in different records are the same instance
+        assertSame(first.getCountry(), table.get(23).getCountry());
+        assertEquals(Integer.valueOf(2), table.get(46).getCountry().getGeoNameId());
+
+        assertNull(table.get(1));
+    }
+}
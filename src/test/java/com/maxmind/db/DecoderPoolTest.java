@@ -0,0 +1,49 @@
+package com.maxmind.db;
+
+import com.maxmind.db.cache.NoCache;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DecoderPoolTest {
+
+    private static Decoder newDecoder() {
+        return new Decoder(NoCache.getInstance(), ByteBuffer.allocate(1), 0);
+    }
+
+    @Test
+    public void testReuse() {
+        DecoderPool pool = new DecoderPool(1);
+        assertNull(pool.acquire());
+
+        Decoder decoder = newDecoder();
+        pool.release(decoder);
+        assertSame(decoder, pool.acquire());
+        assertNull(pool.acquire());
+    }
+
+    @Test
+    public void testBounded() {
+        DecoderPool pool = new DecoderPool(4);
+        for (int i = 0; i < 10; i++) {
+            pool.release(newDecoder());
+        }
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(pool.acquire());
+        }
+        assertNull(pool.acquire());
+    }
+
+    @Test
+    public void testClear() {
+        DecoderPool pool = new DecoderPool(4);
+        pool.release(newDecoder());
+        pool.release(newDecoder());
+        pool.clear();
+        assertNull(pool.acquire());
+    }
+}
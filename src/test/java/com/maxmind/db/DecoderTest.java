@@ -1,9 +1,12 @@
 package com.maxmind.db;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.maxmind.db.cache.CHMCache;
+import com.maxmind.db.cache.NoCache;
 import com.maxmind.db.cache.NodeCache;
 import org.junit.Test;
 
@@ -16,12 +19,23 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @SuppressWarnings({"boxing", "static-method"})
 public class DecoderTest {
@@ -412,6 +426,219 @@ public class DecoderTest {
         DecoderTest.testTypeDecoding(Decoder.Type.ARRAY, DecoderTest.arrays());
     }
 
+    @Test
+    public void testSmallValuesAreShared() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+                /* uint16 5, twice */
+                (byte) 0xa1, 0x05, (byte) 0xa1, 0x05,
+                /* uint32 5 */
+                (byte) 0xc1, 0x05,
+                /* int32 5 */
+                0x01, 0x01, 0x05,
+                /* true, twice */
+                0x01, 0x07, 0x01, 0x07,
+                /* uint16 1023, twice */
+                (byte) 0xa2, 0x03, (byte) 0xff, (byte) 0xa2, 0x03, (byte) 0xff,
+                /* uint16 1024, twice */
+                (byte) 0xa2, 0x04, 0x00, (byte) 0xa2, 0x04, 0x00});
+        Decoder decoder = new Decoder(NoCache.getInstance(), buffer, 0);
+
+        JsonPrimitive uint16 = decoder.decode(0).getAsJsonPrimitive();
+        assertSame(uint16, decoder.decode(2));
+        assertSame(uint16, decoder.decode(6));
+        assertTrue(uint16.getAsNumber() instanceof Integer);
+        JsonPrimitive uint32 = decoder.decode(4).getAsJsonPrimitive();
+        assertTrue(uint32.getAsNumber() instanceof Long);
+        assertEquals(5L, uint32.getAsLong());
+
+        assertSame(decoder.decode(9), decoder.decode(11));
+        assertTrue(decoder.decode(9).getAsBoolean());
+
+        assertSame(decoder.decode(13), decoder.decode(16));
+        assertEquals(1023, decoder.decode(13).getAsInt());
+        assertNotSame(decoder.decode(19), decoder.decode(22));
+        assertEquals(1024, decoder.decode(19).getAsInt());
+    }
+
+    @Test
+    public void testBytesDecodeAsGsonDoes() throws IOException {
+        byte[] bytes = {0, 1, 0x7f, (byte) 0x80, (byte) 0xff, 1};
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1);
+        buffer.put((byte) (0x80 | bytes.length)).put(bytes).rewind();
+        Decoder decoder = new Decoder(NoCache.getInstance(), buffer, 0);
+
+        JsonArray decoded = decoder.decode(0).getAsJsonArray();
+        assertEquals(new Gson().toJsonTree(bytes), decoded);
+        assertArrayEquals(bytes, ReaderTest.toByteArray(decoded));
+        assertSame(decoded.get(1), decoded.get(5));
+    }
+
+    @Test
+    public void testCachedValuesAreNotShared() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+                /* {"en": "Foo"} */
+                (byte) 0xe1, 0x42, 0x65, 0x6e, 0x43, 0x46, 0x6f, 0x6f,
+                /* pointer to offset 0 */
+                0x20, 0x0});
+        Decoder decoder = new Decoder(new CHMCache(), buffer, 0);
+
+        JsonObject first = (JsonObject) decoder.decode(8);
+        first.addProperty("en", "Bar");
+        first.addProperty("zh", "人");
+
+        JsonObject expected = new JsonObject();
+        expected.addProperty("en", "Foo");
+        assertEquals(expected, decoder.decode(8));
+    }
+
+    @Test
+    public void testRecordsAreCached() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+                /* {"en": <pointer to 7>} */
+                (byte) 0xe1, 0x42, 0x65, 0x6e, 0x20, 0x07, 0x0,
+                /* ["Foo"] */
+                0x01, 0x04, 0x43, 0x46, 0x6f, 0x6f});
+        final List<Integer> loaded = new ArrayList<>();
+        final NodeCache cache = new CHMCache();
+        Decoder decoder = new Decoder(new NodeCache() {
+            @Override
+            public JsonElement get(int key, Loader loader) throws IOException {
+                loaded.add(key);
+                return cache.get(key, loader);
+            }
+        }, buffer, 0);
+
+        JsonObject first = (JsonObject) decoder.decodeRecord(0);
+        first.getAsJsonArray("en").add("Bar");
+        JsonObject second = (JsonObject) decoder.decodeRecord(0);
+
+        JsonObject expected = new JsonObject();
+        JsonArray en = new JsonArray();
+        en.add("Foo");
+        expected.add("en", en);
+        assertEquals(expected, second);
+        assertNotSame(first, second);
+        assertEquals(Arrays.asList(0, 7, 0), loaded);
+    }
+
+    private static ByteBuffer nestedArrays(int depth) {
+        // [[[ ... ["x"] ... ]]]
+        ByteBuffer buffer = ByteBuffer.allocate(depth * 2 + 2);
+        for (int i = 0; i < depth; i++) {
+            buffer.put((byte) 0x1).put((byte) 0x4);
+        }
+        buffer.put((byte) 0x41).put((byte) 0x78);
+        buffer.rewind();
+        return buffer;
+    }
+
+    @Test
+    public void testDeeplyNestedData() throws IOException {
+        Decoder decoder = new Decoder(new CHMCache(), nestedArrays(10000), 0, 10000);
+
+        JsonElement element = decoder.decode(0);
+        for (int i = 0; i < 10000; i++) {
+            element = element.getAsJsonArray().get(0);
+        }
+        assertEquals("x", element.getAsString());
+    }
+
+    @Test
+    public void testPointerAboveNestedData() throws IOException {
+        // ["x"], then 16 nested arrays around a pointer to it
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 16 * 2 + 2);
+        buffer.put((byte) 0x1).put((byte) 0x4).put((byte) 0x41).put((byte) 0x78);
+        for (int i = 0; i < 16; i++) {
+            buffer.put((byte) 0x1).put((byte) 0x4);
+        }
+        buffer.put((byte) 0x20).put((byte) 0x0);
+        buffer.rewind();
+
+        for (NodeCache cache : new NodeCache[]{NoCache.getInstance(), new CHMCache()}) {
+            JsonElement element = new Decoder(cache, buffer, 0).decode(4);
+            for (int i = 0; i < 16; i++) {
+                element = element.getAsJsonArray().get(0);
+            }
+            assertEquals("x", element.getAsJsonArray().get(0).getAsString());
+        }
+    }
+
+    @Test
+    public void testPointersBetweenNestedData() throws IOException {
+        // 40 levels of [pointer to the next level], and then "x"
+        ByteBuffer buffer = ByteBuffer.allocate(40 * 4 + 2);
+        for (int i = 0; i < 40; i++) {
+            buffer.put((byte) 0x1).put((byte) 0x4).put((byte) 0x20).put((byte) (4 * i + 4));
+        }
+        buffer.put((byte) 0x41).put((byte) 0x78);
+        buffer.rewind();
+
+        for (NodeCache cache : new NodeCache[]{NoCache.getInstance(), new CHMCache()}) {
+            JsonElement element = new Decoder(cache, buffer, 0).decode(0);
+            for (int i = 0; i < 40; i++) {
+                element = element.getAsJsonArray().get(0);
+            }
+            assertEquals("x", element.getAsString());
+        }
+    }
+
+    @Test
+    public void testPointerTargetsOfValues() throws IOException {
+        // "en", "x", {"a": pointer to "x"}, and then the record
+        // {pointer to "en": pointer to the map, "b": ["z"]}
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+                0x42, 0x65, 0x6E,
+                0x41, 0x78,
+                (byte) 0xE1, 0x41, 0x61, 0x20, 0x03,
+                (byte) 0xE2, 0x20, 0x00, 0x20, 0x05, 0x41, 0x62, 0x01, 0x04, 0x41, 0x7A});
+        Decoder decoder = new Decoder(new CHMCache(), buffer, 0);
+        JsonObject record = decoder.decode(10).getAsJsonObject();
+        assertEquals("x", record.getAsJsonObject("en").get("a").getAsString());
+        assertEquals("z", record.getAsJsonArray("b").get(0).getAsString());
+
+        // The key's target is not decoded through the cache, but the target
+        // inside the map that is pointed to is
+        Set<Integer> targets = new LinkedHashSet<>();
+        decoder.addPointerTargets(10, targets);
+        assertEquals(Arrays.asList(5, 3), new ArrayList<>(targets));
+    }
+
+    @Test
+    public void testMaxDepth() throws IOException {
+        Decoder decoder = new Decoder(new CHMCache(), nestedArrays(11), 0, 10);
+        try {
+            decoder.decode(0);
+            fail("Expected an InvalidDatabaseException");
+        } catch (InvalidDatabaseException e) {
+            assertThat(e.getMessage(), containsString("nested more than 10 levels deep"));
+        }
+
+        // The decoder is still usable after the failure.
+        assertEquals("x", decoder.decode(20).getAsString());
+    }
+
+    @Test
+    public void testPointerCycle() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+                /* ["x", pointer to 0] */
+                0x2, 0x4, 0x41, 0x78, 0x20, 0x0});
+        Decoder decoder = new Decoder(NoCache.getInstance(), buffer, 0);
+        try {
+            decoder.decode(0);
+            fail("Expected an InvalidDatabaseException");
+        } catch (InvalidDatabaseException e) {
+            assertThat(e.getMessage(), containsString("levels deep"));
+        }
+    }
+
+    @Test(expected = InvalidDatabaseException.class)
+    public void testMapKeyThatIsAMap() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+                /* {{}: "x"} */
+                (byte) 0xe1, (byte) 0xe0, 0x41, 0x78});
+        new Decoder(NoCache.getInstance(), buffer, 0).decode(0);
+    }
+
     private static <T> void testTypeDecoding(Decoder.Type type, Map<T, byte[]> tests)
             throws IOException {
 
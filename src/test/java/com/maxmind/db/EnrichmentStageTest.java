@@ -0,0 +1,350 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonElement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.maxmind.db.ReaderTest.getFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EnrichmentStageTest {
+
+    private Reader reader;
+    private ExecutorService executor;
+
+    private static class RecordingSubscriber<R>
+            implements EnrichmentStage.Subscriber<InetAddress, R> {
+        final List<InetAddress> items = Collections.synchronizedList(
+                new ArrayList<InetAddress>());
+        final List<Object> outcomes = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch completed = new CountDownLatch(1);
+        final long initialRequest;
+        volatile EnrichmentStage.Subscription subscription;
+
+        RecordingSubscriber() {
+            this(Long.MAX_VALUE);
+        }
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(EnrichmentStage.Subscription subscription) {
+            this.subscription = subscription;
+            if (this.initialRequest > 0) {
+                subscription.request(this.initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(InetAddress item, R result) {
+            this.items.add(item);
+            this.outcomes.add(result);
+        }
+
+        @Override
+        public void onError(InetAddress item, Throwable failure) {
+            this.items.add(item);
+            this.outcomes.add(failure);
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        this.executor = Executors.newFixedThreadPool(4);
+        this.reader = new Reader(getFile("MaxMind-DB-test-ipv4-24.mmdb"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.executor.shutdownNow();
+        if (this.reader != null) {
+            this.reader.close();
+        }
+    }
+
+    private static List<InetAddress> addresses(int count) throws IOException {
+        List<InetAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            addresses.add(InetAddress.getByName("1.1.1." + (i % 64)));
+        }
+        return addresses;
+    }
+
+    private static void awaitItems(RecordingSubscriber<?> subscriber, int count)
+            throws InterruptedException {
+        for (int i = 0; i < 1000 && subscriber.items.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, subscriber.items.size());
+    }
+
+    @Test
+    public void testItemsArePassedOnInOrder() throws Exception {
+        RecordingSubscriber<JsonElement> subscriber = new RecordingSubscriber<>();
+        EnrichmentStage<InetAddress, JsonElement> stage =
+                new EnrichmentStage.Builder<>(this.reader, EnrichmentStage.RECORD,
+                        EnrichmentStage.addresses())
+                        .executor(this.executor)
+                        .parallelism(4)
+                        .batchSize(3)
+                        .maxPending(10)
+                        .build(subscriber);
+
+        List<InetAddress> addresses = addresses(1000);
+        for (InetAddress address : addresses) {
+            stage.submit(address);
+        }
+        stage.complete();
+
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(addresses, subscriber.items);
+        for (int i = 0; i < addresses.size(); i++) {
+            assertEquals(this.reader.get(addresses.get(i)), subscriber.outcomes.get(i));
+        }
+        assertEquals(0, stage.getPendingCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testThrowingSubscriberCancelsStage() throws Exception {
+        final IllegalArgumentException thrown = new IllegalArgumentException("bad item");
+        RecordingSubscriber<JsonElement> subscriber = new RecordingSubscriber<JsonElement>() {
+            @Override
+            public void onNext(InetAddress item, JsonElement result) {
+                if (this.items.size() == 2) {
+                    throw thrown;
+                }
+                super.onNext(item, result);
+            }
+        };
+        EnrichmentStage<InetAddress, JsonElement> stage =
+                new EnrichmentStage.Builder<>(this.reader, EnrichmentStage.RECORD,
+                        EnrichmentStage.addresses())
+                        .executor(this.executor)
+                        .parallelism(2)
+                        .batchSize(1)
+                        .maxPending(4)
+                        .build(subscriber);
+
+        // Without the worker slots released, submit would wait forever
+        try {
+            for (InetAddress address : addresses(1000)) {
+                stage.submit(address);
+            }
+            fail("Expected the stage to be cancelled");
+        } catch (IllegalStateException e) {
+            assertSame(thrown, e.getCause());
+        }
+        try {
+            stage.offer(InetAddress.getByName("1.1.1.1"));
+            fail("Expected the stage to be cancelled");
+        } catch (IllegalStateException e) {
+            assertSame(thrown, e.getCause());
+        }
+
+        stage.complete();
+        assertFalse(subscriber.completed.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(addresses(2), subscriber.items);
+        assertEquals(0, stage.getPendingCount());
+    }
+
+    @Test
+    public void testItemsWaitForDemand() throws Exception {
+        RecordingSubscriber<JsonElement> subscriber = new RecordingSubscriber<>(0);
+        EnrichmentStage<InetAddress, JsonElement> stage =
+                new EnrichmentStage.Builder<>(this.reader, EnrichmentStage.RECORD,
+                        EnrichmentStage.addresses())
+                        .executor(this.executor)
+                        .maxPending(2)
+                        .build(subscriber);
+
+        List<InetAddress> addresses = addresses(3);
+        assertTrue(stage.offer(addresses.get(0)));
+        assertTrue(stage.offer(addresses.get(1)));
+        // Looked up, but not requested, so they stay in the stage
+        assertFalse(stage.offer(addresses.get(2)));
+        Thread.sleep(100);
+        assertTrue(subscriber.items.isEmpty());
+
+        subscriber.subscription.request(1);
+        awaitItems(subscriber, 1);
+        assertTrue(stage.offer(addresses.get(2)));
+        stage.complete();
+        Thread.sleep(100);
+        assertEquals(1, subscriber.items.size());
+        assertEquals(1, subscriber.completed.getCount());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(addresses, subscriber.items);
+    }
+
+    @Test
+    public void testCancelledSubscriptionCancelsStage() throws Exception {
+        RecordingSubscriber<JsonElement> subscriber = new RecordingSubscriber<>(0);
+        EnrichmentStage<InetAddress, JsonElement> stage =
+                new EnrichmentStage.Builder<>(this.reader, EnrichmentStage.RECORD,
+                        EnrichmentStage.addresses())
+                        .executor(this.executor)
+                        .build(subscriber);
+
+        stage.submit(InetAddress.getByName("1.1.1.1"));
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+        assertEquals(0, stage.getPendingCount());
+        try {
+            stage.offer(InetAddress.getByName("1.1.1.2"));
+            fail("Expected the stage to be cancelled");
+        } catch (IllegalStateException e) {
+            assertNull(e.getCause());
+        }
+        stage.complete();
+        assertFalse(subscriber.completed.await(100, TimeUnit.MILLISECONDS));
+        assertTrue(subscriber.items.isEmpty());
+    }
+
+    @Test
+    public void testNonPositiveRequestCancelsStage() throws Exception {
+        RecordingSubscriber<JsonElement> subscriber = new RecordingSubscriber<>(0);
+        EnrichmentStage<InetAddress, JsonElement> stage =
+                new EnrichmentStage.Builder<>(this.reader, EnrichmentStage.RECORD,
+                        EnrichmentStage.addresses())
+                        .executor(this.executor)
+                        .build(subscriber);
+
+        subscriber.subscription.request(0);
+        try {
+            stage.submit(InetAddress.getByName("1.1.1.1"));
+            fail("Expected the stage to be cancelled");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void testThrowingOnCompleteCancelsStage() throws Exception {
+        final IllegalArgumentException thrown = new IllegalArgumentException("bad end");
+        RecordingSubscriber<JsonElement> subscriber = new RecordingSubscriber<JsonElement>() {
+            @Override
+            public void onComplete() {
+                throw thrown;
+            }
+        };
+        EnrichmentStage<InetAddress, JsonElement> stage =
+                new EnrichmentStage.Builder<>(this.reader, EnrichmentStage.RECORD,
+                        EnrichmentStage.addresses())
+                        .executor(this.executor)
+                        .build(subscriber);
+
+        // With nothing pending, onComplete is called on this thread
+        try {
+            stage.complete();
+            fail("Expected onComplete to throw");
+        } catch (IllegalArgumentException e) {
+            assertSame(thrown, e);
+        }
+        try {
+            stage.offer(InetAddress.getByName("1.1.1.1"));
+            fail("Expected the stage to be cancelled");
+        } catch (IllegalStateException e) {
+            assertSame(thrown, e.getCause());
+        }
+    }
+
+    @Test
+    public void testFullStageRefusesOffers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        EnrichmentStage.Lookup<String> blocked = new EnrichmentStage.Lookup<String>() {
+            @Override
+            public String lookUp(Reader reader, InetAddress address) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return address.getHostAddress();
+            }
+        };
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+        EnrichmentStage<InetAddress, String> stage =
+                new EnrichmentStage.Builder<>(this.reader, blocked,
+                        EnrichmentStage.addresses())
+                        .executor(this.executor)
+                        .maxPending(2)
+                        .build(subscriber);
+
+        InetAddress address = InetAddress.getByName("1.1.1.1");
+        assertTrue(stage.offer(address));
+        assertTrue(stage.offer(address));
+        assertFalse(stage.offer(address));
+        assertEquals(2, stage.getPendingCount());
+
+        release.countDown();
+        stage.complete();
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(2, subscriber.items.size());
+    }
+
+    @Test
+    public void testFailedLookupsArePassedOn() throws Exception {
+        final IOException error = new IOException("bad data");
+        EnrichmentStage.Lookup<String> failing = new EnrichmentStage.Lookup<String>() {
+            @Override
+            public String lookUp(Reader reader, InetAddress address) throws IOException {
+                if (address.getAddress()[3] == 2) {
+                    throw error;
+                }
+                return null;
+            }
+        };
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+        EnrichmentStage<InetAddress, String> stage =
+                new EnrichmentStage.Builder<>(this.reader, failing,
+                        EnrichmentStage.addresses())
+                        .executor(this.executor)
+                        .build(subscriber);
+
+        for (InetAddress address : addresses(4)) {
+            stage.submit(address);
+        }
+        stage.complete();
+
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.outcomes.get(1));
+        assertSame(error, subscriber.outcomes.get(2));
+        assertNull(subscriber.outcomes.get(3));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSubmitAfterComplete() throws Exception {
+        EnrichmentStage<InetAddress, JsonElement> stage =
+                new EnrichmentStage.Builder<>(this.reader, EnrichmentStage.RECORD,
+                        EnrichmentStage.addresses())
+                        .build(new RecordingSubscriber<JsonElement>());
+        stage.complete();
+        stage.submit(InetAddress.getByName("1.1.1.1"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.maxmind.db;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class HotSetTrackerTest {
+
+    @Test
+    public void testTopRecords() throws UnknownHostException {
+        HotSetTracker tracker = new HotSetTracker(5, 1);
+        InetAddress address = InetAddress.getByName("1.2.3.4");
+
+        for (int i = 0; i < 10; i++) {
+            tracker.record(1, address, 24, 100);
+            tracker.record(1, address, 24, 100);
+            tracker.record(2, address, 16, 200);
+            // one-offs that compete for the remaining counters
+            tracker.record(1000 + i, address, 8, 1000 + i);
+        }
+
+        List<HotSpot> records = tracker.records();
+        assertEquals(5, records.size());
+        assertEquals(100, records.get(0).getDataOffset());
+        assertEquals(20, records.get(0).getCount());
+        assertEquals(0, records.get(0).getError());
+        assertEquals(200, records.get(1).getDataOffset());
+        assertEquals(10, records.get(1).getCount());
+        for (HotSpot oneOff : records.subList(2, 5)) {
+            // Counted once, on top of the count of the one-off it replaced
+            assertEquals(1, oneOff.getCount() - oneOff.getError());
+        }
+
+        List<HotSpot> networks = tracker.networks();
+        assertEquals("1.2.3.0/24", networks.get(0).getNetwork().toString());
+        assertEquals("1.2.0.0/16", networks.get(1).getNetwork().toString());
+    }
+
+    @Test
+    public void testNetworksSharingARecord() throws UnknownHostException {
+        HotSetTracker tracker = new HotSetTracker(10, 1);
+
+        tracker.record(1, InetAddress.getByName("1.2.3.4"), 24, 100);
+        tracker.record(2, InetAddress.getByName("5.6.7.8"), 24, 100);
+        tracker.record(2, InetAddress.getByName("5.6.7.9"), 24, 100);
+
+        assertEquals(2, tracker.networks().size());
+        assertEquals("5.6.7.0/24", tracker.networks().get(0).getNetwork().toString());
+        assertEquals(1, tracker.records().size());
+        assertEquals(3, tracker.records().get(0).getCount());
+    }
+
+    @Test
+    public void testScaledBySampleInterval() throws UnknownHostException {
+        HotSetTracker tracker = new HotSetTracker(10, 8);
+
+        tracker.record(1, InetAddress.getByName("1.2.3.4"), 24, 100);
+        assertEquals(8, tracker.records().get(0).getCount());
+    }
+
+    @Test
+    public void testNetworkKey() throws UnknownHostException {
+        byte[] a = InetAddress.getByName("1.2.3.4").getAddress();
+        byte[] b = InetAddress.getByName("1.2.3.200").getAddress();
+        byte[] c = InetAddress.getByName("1.2.4.4").getAddress();
+
+        assertEquals(HotSetTracker.networkKey(a, 24), HotSetTracker.networkKey(b, 24));
+        assertNotEquals(HotSetTracker.networkKey(a, 25), HotSetTracker.networkKey(b, 25));
+        assertNotEquals(HotSetTracker.networkKey(a, 24), HotSetTracker.networkKey(c, 24));
+        assertEquals(HotSetTracker.networkKey(a, 21), HotSetTracker.networkKey(c, 21));
+        assertNotEquals(HotSetTracker.networkKey(a, 21), HotSetTracker.networkKey(c, 22));
+
+        byte[] d = InetAddress.getByName("2001:db8::1").getAddress();
+        byte[] e = InetAddress.getByName("2001:db8::2").getAddress();
+        assertEquals(HotSetTracker.networkKey(d, 64), HotSetTracker.networkKey(e, 64));
+        assertNotEquals(HotSetTracker.networkKey(d, 128), HotSetTracker.networkKey(e, 128));
+    }
+}
@@ -0,0 +1,164 @@
+package com.maxmind.db;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class IpAddressParserTest {
+
+    private final byte[] ipV4Address = new byte[4];
+    private final byte[] ipV6Address = new byte[16];
+
+    @Test
+    public void testParsesAsGetByName() throws Exception {
+        String[] literals = {
+                "0.0.0.0",
+                "1.2.3.4",
+                "255.255.255.255",
+                "10.0.100.9",
+                "::",
+                "::1",
+                "1::",
+                "2001:db8::1",
+                "2001:DB8:0:0:8:800:200C:417A",
+                "ff02::1:ff00:0",
+                "1:2:3:4:5:6:7:8",
+                "1:2:3:4:5:6:7::",
+                "::2:3:4:5:6:7:8",
+                "1::8",
+                "0001:0002::000f",
+                "::1.2.3.4",
+                "::ffff:1.2.3.4",
+                "::ffff:102:304",
+                "0:0:0:0:0:ffff:1.2.3.4",
+                "64:ff9b::192.0.2.33",
+                "1:2:3:4:5:6:1.2.3.4",
+                "[2001:db8::1]",
+                "[::ffff:1.2.3.4]",
+        };
+        for (String literal : literals) {
+            assertParsesAsGetByName(literal);
+        }
+    }
+
+    @Test
+    public void testParsesRandomAddressesAsGetByName() throws Exception {
+        Random random = new Random(4);
+        for (int i = 0; i < 1000; i++) {
+            byte[] raw = new byte[i % 2 == 0 ? 4 : 16];
+            random.nextBytes(raw);
+            if (raw.length == 16 && i % 3 == 0) {
+                // Runs of zero groups, to compress
+                for (int j = 2 * random.nextInt(8); j < 16 && random.nextBoolean(); j++) {
+                    raw[j] = 0;
+                }
+            }
+            assertParsesAsGetByName(InetAddress.getByAddress(raw).getHostAddress());
+            if (raw.length == 16) {
+                assertParsesAsGetByName(compress(raw));
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsHostnamesAndMalformedLiterals() {
+        String[] texts = {
+                "",
+                "localhost",
+                "example.com",
+                "1.2.3",
+                "1.2.3.4.5",
+                "1.2.3.256",
+                "1.2.3.-4",
+                "01.2.3.4",
+                "1.2.3.04",
+                "1..3.4",
+                "1.2.3.4.",
+                ".1.2.3",
+                " 1.2.3.4",
+                "1.2.3.4 ",
+                "1.2.3.a",
+                "[1.2.3.4]",
+                "\u0661.2.3.4",
+                ":",
+                ":::",
+                ":1::",
+                "1:",
+                "1::2::3",
+                "1:::2",
+                "12345::",
+                "g::",
+                "1:2:3:4:5:6:7",
+                "1:2:3:4:5:6:7:8:9",
+                "1:2:3:4::5:6:7:8",
+                "1:2:3:4:5:6:7:1.2.3.4",
+                "::1.2.3",
+                "::1.2.3.4:5",
+                "::01.2.3.4",
+                "1.2.3.4::",
+                "fe80::1%eth0",
+                "fe80::1%1",
+                "[::1",
+                "::1]",
+                "[[::1]]",
+        };
+        for (String text : texts) {
+            try {
+                IpAddressParser.parse(text, this.ipV4Address, this.ipV6Address);
+                fail("Expected '" + text + "' to be rejected");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testParsesIntoGivenArrays() {
+        assertSame(this.ipV4Address,
+                IpAddressParser.parse("1.2.3.4", this.ipV4Address, this.ipV6Address));
+        assertSame(this.ipV4Address,
+                IpAddressParser.parse("::ffff:1.2.3.4", this.ipV4Address, this.ipV6Address));
+        assertSame(this.ipV6Address,
+                IpAddressParser.parse("::1.2.3.4", this.ipV4Address, this.ipV6Address));
+    }
+
+    private void assertParsesAsGetByName(String literal) throws Exception {
+        byte[] expected = InetAddress.getByName(literal).getAddress();
+        byte[] parsed = IpAddressParser.parse(new StringBuilder(literal), this.ipV4Address,
+                this.ipV6Address);
+        assertArrayEquals(literal, expected, parsed);
+    }
+
+    // Formats an IPv6 address with its longest run of zero groups as "::"
+    private static String compress(byte[] raw) {
+        int[] groups = new int[8];
+        int runStart = -1;
+        int runLength = 0;
+        for (int i = 0, zeros = 0; i < 8; i++) {
+            groups[i] = (0xFF & raw[2 * i]) << 8 | (0xFF & raw[2 * i + 1]);
+            zeros = groups[i] == 0 ? zeros + 1 : 0;
+            if (zeros > runLength) {
+                runLength = zeros;
+                runStart = i - zeros + 1;
+            }
+        }
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            if (i == runStart) {
+                literal.append(i == 0 ? "::" : ":");
+                i += runLength - 1;
+                continue;
+            }
+            literal.append(Integer.toHexString(groups[i]));
+            if (i < 7) {
+                literal.append(':');
+            }
+        }
+        return literal.toString();
+    }
+}
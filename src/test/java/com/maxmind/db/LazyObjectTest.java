@@ -0,0 +1,108 @@
+package com.maxmind.db;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.maxmind.db.cache.CHMCache;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyObjectTest {
+
+    // {"country": <pointer to 29>, "list": [1, 2, 3], "en": "x"} at offset 0
+    // and {"iso_code": "US"} at offset 29
+    private static final byte[] DATA = {(byte) 0xe3,
+            /* country */
+            0x47, 0x63, 0x6f, 0x75, 0x6e, 0x74, 0x72, 0x79,
+            /* pointer to 29 */
+            0x20, 0x1d,
+            /* list */
+            0x44, 0x6c, 0x69, 0x73, 0x74,
+            /* [1, 2, 3] */
+            0x03, 0x04, (byte) 0xa1, 0x01, (byte) 0xa1, 0x02, (byte) 0xa1, 0x03,
+            /* en */
+            0x42, 0x65, 0x6e,
+            /* x */
+            0x41, 0x78,
+            /* {"iso_code": "US"} */
+            (byte) 0xe1, 0x48, 0x69, 0x73, 0x6f, 0x5f, 0x63, 0x6f, 0x64, 0x65,
+            0x42, 0x55, 0x53};
+
+    private static LazyObject view() throws IOException {
+        Decoder decoder = new Decoder(new CHMCache(), ByteBuffer.wrap(DATA), 0);
+        return new LazyObject(decoder, 0);
+    }
+
+    @Test
+    public void testGet() throws IOException {
+        LazyObject view = view();
+
+        assertEquals(3, view.size());
+        assertEquals("x", view.get("en").getAsString());
+        assertSame(view.get("en"), view.get("en"));
+        assertNull(view.get("zh"));
+        assertTrue(view.has("list"));
+        assertFalse(view.has("lis"));
+
+        JsonObject country = new JsonObject();
+        country.addProperty("iso_code", "US");
+        assertEquals(country, view.get("country"));
+    }
+
+    @Test
+    public void testNestedViews() throws IOException {
+        LazyObject view = view();
+
+        LazyObject country = view.getObject("country");
+        assertEquals(1, country.size());
+        assertEquals("US", country.get("iso_code").getAsString());
+
+        LazyArray list = view.getArray("list");
+        assertEquals(3, list.size());
+        assertEquals(3, list.get(2).getAsInt());
+        assertEquals(1, list.get(0).getAsInt());
+
+        assertNull(view.getObject("missing"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongType() throws IOException {
+        view().getObject("list");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testArrayIndexOutOfBounds() throws IOException {
+        view().getArray("list").get(3);
+    }
+
+    @Test
+    public void testMaterialize() throws IOException {
+        LazyObject view = view();
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("country", "list", "en")),
+                view.keySet());
+
+        JsonObject expected = new JsonObject();
+        JsonObject country = new JsonObject();
+        country.addProperty("iso_code", "US");
+        expected.add("country", country);
+        JsonArray list = new JsonArray();
+        list.add(1);
+        list.add(2);
+        list.add(3);
+        expected.add("list", list);
+        expected.addProperty("en", "x");
+
+        assertEquals(expected, view.toJsonObject());
+        assertEquals(list, view.getArray("list").toJsonArray());
+    }
+}
@@ -0,0 +1,151 @@
+package com.maxmind.db;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LookupFutureTest {
+
+    private static final class RecordingCallback implements LookupCallback<String> {
+        final List<Object> outcomes = new ArrayList<>();
+
+        @Override
+        public void onSuccess(String result) {
+            this.outcomes.add(result);
+        }
+
+        @Override
+        public void onFailure(Throwable failure) {
+            this.outcomes.add(failure);
+        }
+    }
+
+    @Test
+    public void testCallbacksRunOnCompletion() throws Exception {
+        LookupFuture<String> future = new LookupFuture<>();
+        RecordingCallback callback = new RecordingCallback();
+        future.addCallback(callback);
+        assertFalse(future.isDone());
+        assertTrue(callback.outcomes.isEmpty());
+
+        assertTrue(future.complete("US"));
+        assertFalse(future.complete("CA"));
+        assertEquals(1, callback.outcomes.size());
+        assertEquals("US", callback.outcomes.get(0));
+        assertEquals("US", future.get());
+
+        // Added after completion, so called right away
+        RecordingCallback late = new RecordingCallback();
+        future.addCallback(late);
+        assertEquals("US", late.outcomes.get(0));
+    }
+
+    @Test
+    public void testFailure() throws InterruptedException {
+        IOException error = new IOException("bad data");
+        LookupFuture<String> future = LookupFuture.failed(error);
+        RecordingCallback callback = new RecordingCallback();
+        future.addCallback(callback);
+        assertSame(error, callback.outcomes.get(0));
+        try {
+            future.get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        LookupFuture<String> future = new LookupFuture<>();
+        RecordingCallback callback = new RecordingCallback();
+        future.addCallback(callback);
+
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+        assertTrue(callback.outcomes.get(0) instanceof CancellationException);
+        // Completing a cancelled lookup has no effect
+        assertFalse(future.complete("US"));
+        assertFalse(future.cancel(false));
+        try {
+            future.get();
+            fail("Expected a CancellationException");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testTimeout() throws Exception {
+        new LookupFuture<String>().get(10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testGetWaitsForCompletion() throws Exception {
+        final LookupFuture<String> future = new LookupFuture<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                future.complete("US");
+            }
+        });
+        thread.start();
+        assertEquals("US", future.get(10, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void testThrowingCallbackDoesNotStopOthers() throws Exception {
+        final LookupFuture<String> future = new LookupFuture<>();
+        final IllegalStateException thrown = new IllegalStateException("callback failed");
+        future.addCallback(new LookupCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                throw thrown;
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+            }
+        });
+        RecordingCallback callback = new RecordingCallback();
+        future.addCallback(callback);
+
+        final List<Throwable> reported = new ArrayList<>();
+        final boolean[] completed = new boolean[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                completed[0] = future.complete("US");
+            }
+        });
+        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                reported.add(e);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        // The exception is reported without stopping the completing thread
+        assertTrue(completed[0]);
+        assertEquals(1, reported.size());
+        assertSame(thrown, reported.get(0));
+        assertEquals("US", callback.outcomes.get(0));
+        assertTrue(future.isDone());
+    }
+}
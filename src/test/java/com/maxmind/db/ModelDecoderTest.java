@@ -0,0 +1,263 @@
+package com.maxmind.db;
+
+import com.maxmind.db.cache.NoCache;
+import com.maxmind.db.model.AsnResponse;
+import com.maxmind.db.model.CityResponse;
+import com.maxmind.db.model.CountryResponse;
+import com.maxmind.db.model.Subdivision;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ModelDecoderTest {
+
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+    private ModelDecoderTest map(int size) {
+        this.data.write(0xe0 | size);
+        return this;
+    }
+
+    private ModelDecoderTest string(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 29) {
+            this.data.write(0x40 | bytes.length);
+        } else {
+            this.data.write(0x40 | 29);
+            this.data.write(bytes.length - 29);
+        }
+        this.data.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    private ModelDecoderTest uint32(int value) {
+        this.data.write(0xc4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            this.data.write(value >>> shift);
+        }
+        return this;
+    }
+
+    private ModelDecoderTest uint16(int value) {
+        this.data.write(0xa2);
+        this.data.write(value >>> 8);
+        this.data.write(value);
+        return this;
+    }
+
+    private ModelDecoderTest doubleValue(double value) {
+        this.data.write(0x68);
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            this.data.write((int) (bits >>> shift));
+        }
+        return this;
+    }
+
+    private ModelDecoderTest array(int size) {
+        this.data.write(size);
+        this.data.write(0x04);
+        return this;
+    }
+
+    private ModelDecoderTest pointer(int target) {
+        this.data.write(0x20 | (target >>> 8));
+        this.data.write(target);
+        return this;
+    }
+
+    private Decoder decoder() {
+        return new Decoder(NoCache.getInstance(), ByteBuffer.wrap(this.data.toByteArray()), 0);
+    }
+
+    @Test
+    public void testCountryResponse() throws IOException {
+        // The continent, which the record points to
+        this.map(3)
+                .string("code").string("NA")
+                .string("geoname_id").uint32(6255149)
+                .string("names").map(1).string("en").string("North America");
+        int record = this.data.size();
+        this.map(3)
+                .string("continent").pointer(0)
+                .string("country").map(3)
+                .string("geoname_id").uint32(6252001)
+                .string("names").map(2)
+                .string("de").string("USA")
+                .string("en").string("United States")
+                .string("iso_code").string("US")
+                .string("location").map(1).string("time_zone").string("America/Chicago");
+
+        Decoder decoder = this.decoder();
+        CountryResponse response = ModelDecoder.decodeCountryResponse(decoder, record,
+                Locales.ENGLISH);
+        CountryResponse expected = CountryResponse.of(decoder.decode(record));
+
+        assertEquals("US", response.getCountry().getIsoCode());
+        assertEquals(Integer.valueOf(6252001), response.getCountry().getGeoNameId());
+        assertEquals("United States", response.getCountry().getName());
+        assertEquals("NA", response.getContinent().getCode());
+        assertEquals(Integer.valueOf(6255149), response.getContinent().getGeoNameId());
+        assertEquals("North America", response.getContinent().getName());
+
+        assertEquals(expected.getCountry().toString(), response.getCountry().toString());
+        assertEquals(expected.getContinent().toString(), response.getContinent().toString());
+    }
+
+    @Test
+    public void testCityResponse() throws IOException {
+        // A subdivision, which the record points to
+        this.map(2)
+                .string("iso_code").string("E")
+                .string("names").map(1).string("en").string("Östergötland County");
+        int record = this.data.size();
+        this.map(5)
+                .string("city").map(2)
+                .string("geoname_id").uint32(2694762)
+                .string("names").map(2).string("de").string("Linköping")
+                .string("en").string("Linköping")
+                .string("location").map(4)
+                .string("accuracy_radius").uint16(76)
+                .string("latitude").doubleValue(58.4167)
+                .string("longitude").doubleValue(15.6167)
+                .string("time_zone").string("Europe/Stockholm")
+                .string("postal").map(1).string("code").string("582 14")
+                .string("subdivisions").array(2).pointer(0)
+                .map(1).string("iso_code").string("X")
+                .string("traits").map(1).string("is_anycast").string("no");
+
+        Decoder decoder = this.decoder();
+        CityResponse response = ModelDecoder.decodeCityResponse(decoder, record,
+                Locales.ENGLISH);
+
+        assertEquals(CityResponse.of(decoder.decode(record)).toString(), response.toString());
+        assertEquals("Linköping", response.getCity().getName());
+        assertEquals(Double.valueOf(58.4167), response.getLocation().getLatitude());
+        assertEquals(Integer.valueOf(76), response.getLocation().getAccuracyRadius());
+        assertEquals("582 14", response.getPostal().getCode());
+        Subdivision first = response.getSubdivisions().get(0);
+        assertEquals("E", first.getIsoCode());
+        assertEquals("Östergötland County", first.getName());
+        assertEquals("X", response.getSubdivisions().get(1).getIsoCode());
+        assertNull(response.getCountry());
+        assertNull(response.getContinent());
+    }
+
+    @Test
+    public void testAsnResponse() throws IOException {
+        this.map(2)
+                .string("autonomous_system_number").uint32(1221)
+                .string("autonomous_system_organization").string("Telstra Pty Ltd");
+
+        AsnResponse response = ModelDecoder.decodeAsnResponse(this.decoder(), 0);
+
+        assertEquals(Long.valueOf(1221), response.getAutonomousSystemNumber());
+        assertEquals("Telstra Pty Ltd", response.getAutonomousSystemOrganization());
+    }
+
+    @Test
+    public void testLocales() throws IOException {
+        this.map(1)
+                .string("country").map(1)
+                .string("names").map(3)
+                .string("de").string("Schweden")
+                .string("en").string("Sweden")
+                .string("fr").string("Suède");
+
+        Locales locales = new Locales(Arrays.asList("ja", "fr", "de"),
+                Arrays.asList("de", "en", "fr", "ja"));
+        CountryResponse response = ModelDecoder.decodeCountryResponse(this.decoder(), 0,
+                locales);
+        assertEquals("Suède", response.getCountry().getName());
+
+        // Locales the database has no names in are dropped
+        locales = new Locales(Arrays.asList("fr", "de"), Arrays.asList("de", "en"));
+        assertEquals(Arrays.asList("de"), locales.asList());
+        response = ModelDecoder.decodeCountryResponse(this.decoder(), 0, locales);
+        assertEquals("Schweden", response.getCountry().getName());
+
+        locales = new Locales(Arrays.asList("ja"), null);
+        response = ModelDecoder.decodeCountryResponse(this.decoder(), 0, locales);
+        assertNull(response.getCountry().getName());
+    }
+
+    @Test
+    public void testLocalesFallBackIfDatabaseHasNone() throws IOException {
+        this.map(1)
+                .string("country").map(1)
+                .string("names").map(2)
+                .string("de").string("Schweden")
+                .string("en").string("Sweden");
+
+        Locales locales = new Locales(Arrays.asList("ja", "zh-CN"), Arrays.asList("de", "en"));
+        assertEquals(Arrays.asList("en"), locales.asList());
+        CountryResponse response = ModelDecoder.decodeCountryResponse(this.decoder(), 0,
+                locales);
+        assertEquals("Sweden", response.getCountry().getName());
+
+        // Without English names, the first language of the database is used
+        locales = new Locales(Arrays.asList("ja"), Arrays.asList("de", "fr"));
+        assertEquals(Arrays.asList("de"), locales.asList());
+        response = ModelDecoder.decodeCountryResponse(this.decoder(), 0, locales);
+        assertEquals("Schweden", response.getCountry().getName());
+
+        // A database that lists no languages has no names to fall back to
+        locales = new Locales(Arrays.asList("ja"), Collections.<String>emptyList());
+        assertEquals(Collections.<String>emptyList(), locales.asList());
+    }
+
+    @Test
+    public void testMissingFields() throws IOException {
+        this.map(2)
+                .string("country").map(1).string("names").map(1).string("fr").string("Allemagne")
+                .string("registered_country").map(1).string("iso_code").string("DE");
+
+        Decoder decoder = this.decoder();
+        CountryResponse response = ModelDecoder.decodeCountryResponse(decoder, 0,
+                Locales.ENGLISH);
+        CountryResponse expected = CountryResponse.of(decoder.decode(0));
+
+        assertNull(response.getContinent());
+        assertNull(response.getCountry().getIsoCode());
+        assertNull(response.getCountry().getGeoNameId());
+        assertNull(response.getCountry().getName());
+
+        assertNull(expected.getContinent());
+        assertEquals(expected.getCountry().toString(), response.getCountry().toString());
+    }
+
+    @Test
+    public void testPartialCountryAndContinent() throws IOException {
+        this.map(2)
+                .string("continent").map(1).string("code").string("EU")
+                .string("country").map(1).string("geoname_id").uint32(2921044);
+
+        Decoder decoder = this.decoder();
+        CountryResponse response = ModelDecoder.decodeCountryResponse(decoder, 0,
+                Locales.ENGLISH);
+        CountryResponse expected = CountryResponse.of(decoder.decode(0));
+
+        assertEquals("EU", response.getContinent().getCode());
+        assertNull(response.getContinent().getGeoNameId());
+        assertNull(response.getCountry().getIsoCode());
+        assertEquals(Integer.valueOf(2921044), response.getCountry().getGeoNameId());
+
+        assertEquals(expected.getCountry().toString(), response.getCountry().toString());
+        assertEquals(expected.getContinent().toString(), response.getContinent().toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongType() throws IOException {
+        this.map(1).string("country").string("US");
+
+        ModelDecoder.decodeCountryResponse(this.decoder(), 0, Locales.ENGLISH);
+    }
+}
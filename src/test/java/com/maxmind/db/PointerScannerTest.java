@@ -0,0 +1,55 @@
+package com.maxmind.db;
+
+import com.maxmind.db.cache.CHMCache;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PointerScannerTest {
+
+    // {"a": <pointer to 13>, "b": <pointer to 13>, "c": <pointer to 15>}
+    // at offset 0, followed by "x" at 13 and "y" at 15
+    private static final byte[] DATA = {(byte) 0xe3,
+            0x41, 0x61, 0x20, 0x0d,
+            0x41, 0x62, 0x20, 0x0d,
+            0x41, 0x63, 0x20, 0x0f,
+            0x41, 0x78,
+            0x41, 0x79};
+
+    @Test
+    public void testMostReferenced() throws IOException {
+        Decoder decoder = new Decoder(new CHMCache(), ByteBuffer.wrap(DATA), 0);
+
+        assertArrayEquals(new int[]{13},
+                PointerScanner.mostReferenced(decoder, 0, DATA.length, 1));
+        assertArrayEquals(new int[]{13, 15},
+                PointerScanner.mostReferenced(decoder, 0, DATA.length, 10));
+        assertArrayEquals(new int[0],
+                PointerScanner.mostReferenced(decoder, 13, DATA.length, 10));
+    }
+
+    @Test
+    public void testManyTargets() throws IOException {
+        // 2500 strings, followed by two pointers to each of them and one more
+        // to the string at 4000
+        int strings = 2500;
+        ByteBuffer buffer = ByteBuffer.allocate(2 * strings + 5 * (2 * strings + 1));
+        for (int i = 0; i < strings; i++) {
+            buffer.put((byte) 0x41).put((byte) 0x78);
+        }
+        for (int i = 0; i < 2 * strings; i++) {
+            buffer.put((byte) 0x38).putInt(2 * (i % strings));
+        }
+        buffer.put((byte) 0x38).putInt(4000);
+        buffer.rewind();
+
+        Decoder decoder = new Decoder(new CHMCache(), buffer, 0);
+        int[] top = PointerScanner.mostReferenced(decoder, 0, buffer.capacity(), 3000);
+        assertEquals(strings, top.length);
+        assertEquals(4000, top[0]);
+    }
+}
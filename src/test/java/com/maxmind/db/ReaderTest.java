@@ -2,6 +2,11 @@ package com.maxmind.db;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.maxmind.db.cache.BoundedCache;
+import com.maxmind.db.cache.CHMCache;
+import com.maxmind.db.cache.NodeCache;
+import com.maxmind.db.cache.PinnableCache;
+import com.maxmind.db.cache.TieredCache;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -28,7 +33,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ReaderTest {
 
@@ -64,12 +71,14 @@ public class ReaderTest {
     }
 
     static class GetRecordTest {
+        String literal;
         InetAddress ip;
         File db;
         String network;
         boolean hasRecord;
 
         GetRecordTest(String ip, String file, String network, boolean hasRecord) throws UnknownHostException {
+            this.literal = ip;
             this.ip = InetAddress.getByName(ip);
             db = getFile(file);
             this.network = network;
@@ -104,6 +113,46 @@ public class ReaderTest {
                 } else {
                     assertNull(record.getData());
                 }
+
+                Record literalRecord = reader.getRecordByLiteral(test.literal);
+                assertEquals(test.network, literalRecord.getNetwork().toString());
+                assertEquals(record.getData(), literalRecord.getData());
+                assertEquals(record.getData(), reader.getByLiteral(test.literal));
+            }
+        }
+    }
+
+    @Test
+    public void testPinHotSet() throws IOException {
+        NodeCache[] caches = {new TieredCache(new CHMCache()),
+                new TieredCache(new BoundedCache())};
+        for (NodeCache cache : caches) {
+            try (Reader reader = new Reader.Builder(getFile("MaxMind-DB-test-decoder.mmdb"))
+                    .withCache(cache)
+                    .trackHotSet(16, 1)
+                    .build()) {
+                for (int i = 0; i < 10; i++) {
+                    reader.get(InetAddress.getByName("1.1.1.1"));
+                }
+                int pinned = reader.pinHotSet();
+                if (((PinnableCache) cache).canPin()) {
+                    assertTrue(pinned > 0);
+                } else {
+                    assertEquals("nothing is pinned in a CHMCache", 0, pinned);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetByLiteralRejectsHostnames() throws IOException {
+        this.testReader = new Reader(getFile("MaxMind-DB-test-decoder.mmdb"));
+        for (String text : new String[]{"localhost", "1.1.1", "1.1.1.1.example.com", "::1%lo"}) {
+            try {
+                this.testReader.getByLiteral(text);
+                fail("Expected '" + text + "' to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString("not an IP address literal"));
             }
         }
     }
@@ -0,0 +1,205 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BoundedCacheTest {
+
+    private static class CountingLoader implements NodeCache.Loader {
+        int loads;
+
+        @Override
+        public JsonElement load(int key) {
+            this.loads++;
+            return new JsonPrimitive(key);
+        }
+    }
+
+    private static int loads(NodeCache cache, CountingLoader loader, int... keys)
+            throws IOException {
+        int before = loader.loads;
+        for (int key : keys) {
+            assertEquals(key, cache.get(key, loader).getAsInt());
+        }
+        return loader.loads - before;
+    }
+
+    @Test
+    public void testGetIfPresent() throws IOException {
+        BoundedCache cache = new BoundedCache(10);
+        CountingLoader loader = new CountingLoader();
+
+        assertNull(cache.getIfPresent(1));
+        assertEquals(0, cache.getStats().getMissCount());
+        assertEquals(1, loads(cache, loader, 1));
+        assertEquals(1, cache.getIfPresent(1).getAsInt());
+        assertEquals(1, cache.getStats().getHitCount());
+        assertEquals(1, loader.loads);
+    }
+
+    @Test
+    public void testEvictsLeastUsed() throws IOException {
+        BoundedCache cache = new BoundedCache(2);
+        CountingLoader loader = new CountingLoader();
+
+        assertEquals(2, loads(cache, loader, 1, 1, 1, 2));
+        // 3 is admitted once it has been requested more often than 2
+        assertEquals(3, loads(cache, loader, 3, 3, 3));
+        assertEquals(0, loads(cache, loader, 1, 3));
+        assertEquals(1, loads(cache, loader, 2));
+    }
+
+    @Test
+    public void testOneOffLookupsDoNotFlushHotEntries() throws IOException {
+        BoundedCache cache = new BoundedCache(10);
+        CountingLoader loader = new CountingLoader();
+
+        for (int i = 0; i < 10; i++) {
+            loads(cache, loader, i, i, i);
+        }
+        for (int i = 100; i < 500; i++) {
+            assertEquals(1, loads(cache, loader, i));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, loads(cache, loader, i));
+        }
+    }
+
+    @Test
+    public void testFollowsTraffic() throws IOException {
+        BoundedCache cache = new BoundedCache(10);
+        CountingLoader loader = new CountingLoader();
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                loads(cache, loader, i);
+            }
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 10; i < 20; i++) {
+                loads(cache, loader, i);
+            }
+        }
+        for (int i = 10; i < 20; i++) {
+            assertEquals(0, loads(cache, loader, i));
+        }
+    }
+
+    @Test
+    public void testMaximumBytes() throws IOException {
+        final JsonArray large = new JsonArray();
+        for (int i = 0; i < 1000; i++) {
+            large.add("a string of some length");
+        }
+        final int[] loads = new int[1];
+        NodeCache.Loader loader = new NodeCache.Loader() {
+            @Override
+            public JsonElement load(int key) {
+                loads[0]++;
+                return key == 0 ? large : new JsonPrimitive(key);
+            }
+        };
+
+        BoundedCache cache = BoundedCache.withMaximumBytes(10000);
+        cache.get(0, loader);
+        cache.get(0, loader);
+        assertEquals("too large to cache", 2, loads[0]);
+
+        cache.get(1, loader);
+        cache.get(1, loader);
+        assertEquals(3, loads[0]);
+    }
+
+    @Test
+    public void testRejectedValueEvictsNothing() throws IOException {
+        final JsonArray large = new JsonArray();
+        for (int i = 0; i < 100; i++) {
+            large.add(i);
+        }
+        CountingLoader loader = new CountingLoader() {
+            @Override
+            public JsonElement load(int key) {
+                return key == 3 ? large : super.load(key);
+            }
+        };
+
+        // Room for 1 and 2, and for the large value only if both go
+        BoundedCache cache = BoundedCache.withMaximumBytes(JsonSizeEstimator.estimate(large));
+        cache.get(1, loader);
+        for (int i = 0; i < 5; i++) {
+            cache.get(2, loader);
+        }
+        // 3 is requested more often than 1, but less often than 2, which
+        // it would have to evict as well
+        for (int i = 0; i < 3; i++) {
+            cache.get(3, loader);
+        }
+        assertEquals(0, cache.getStats().getEvictionCount());
+        assertEquals(2, cache.getStats().getSize());
+        assertEquals(0, loads(cache, loader, 1, 2));
+
+        for (int i = 0; i < 10; i++) {
+            cache.get(3, loader);
+        }
+        assertEquals(2, cache.getStats().getEvictionCount());
+        assertEquals(1, cache.getStats().getSize());
+    }
+
+    @Test
+    public void testHitsOnManyThreadsAreCounted() throws Exception {
+        final BoundedCache cache = new BoundedCache(2);
+        final CountingLoader loader = new CountingLoader();
+        loads(cache, loader, 1, 2);
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        cache.getIfPresent(1);
+                        cache.getIfPresent(2);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // The hits were recorded in buffers, but still keep a key requested
+        // a few times from displacing 1 or 2
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1, loads(cache, loader, 3));
+        }
+        assertEquals(0, loads(cache, loader, 1, 2));
+    }
+
+    @Test
+    public void testPinnedEntriesAreKept() throws IOException {
+        BoundedCache cache = new BoundedCache(4);
+        CountingLoader loader = new CountingLoader();
+        cache.pin(new int[]{1, 2});
+
+        // Pinned values are admitted on their first load
+        assertEquals(2, loads(cache, loader, 1, 2));
+        for (int i = 100; i < 200; i++) {
+            loads(cache, loader, i, i, i, i);
+        }
+        assertEquals(0, loads(cache, loader, 1, 2));
+
+        cache.pin(new int[0]);
+        for (int i = 200; i < 300; i++) {
+            loads(cache, loader, i, i, i, i);
+        }
+        assertEquals(2, loads(cache, loader, 1, 2));
+    }
+}
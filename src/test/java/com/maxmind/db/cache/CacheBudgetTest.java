@@ -0,0 +1,145 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CacheBudgetTest {
+
+    private static final long ENTRY_BYTES = JsonSizeEstimator.estimate(new JsonPrimitive(0));
+
+    private static final class CountingLoader implements NodeCache.Loader {
+        final long sleepMillis;
+        int loads;
+
+        CountingLoader(long sleepMillis) {
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public JsonElement load(int key) throws IOException {
+            this.loads++;
+            if (this.sleepMillis > 0) {
+                try {
+                    Thread.sleep(this.sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new JsonPrimitive(key);
+        }
+    }
+
+    private static int loads(NodeCache cache, CountingLoader loader, int... keys)
+            throws IOException {
+        int before = loader.loads;
+        for (int key : keys) {
+            assertEquals(key, cache.get(key, loader).getAsInt());
+        }
+        return loader.loads - before;
+    }
+
+    @Test
+    public void testSharedLimit() throws IOException {
+        CacheBudget budget = new CacheBudget(10 * ENTRY_BYTES);
+        BudgetedCache first = budget.newCache();
+        BudgetedCache second = budget.newCache();
+        CountingLoader loader = new CountingLoader(0);
+
+        for (int i = 0; i < 8; i++) {
+            loads(first, loader, i);
+        }
+        assertEquals(8 * ENTRY_BYTES, budget.getUsedBytes());
+        assertEquals(0, loads(first, loader, 0, 1, 2, 3, 4, 5, 6, 7));
+
+        for (int i = 0; i < 8; i++) {
+            loads(second, loader, i);
+        }
+        assertEquals(10 * ENTRY_BYTES, budget.getUsedBytes());
+        assertEquals(budget.getUsedBytes(), first.getUsedBytes() + second.getUsedBytes());
+        assertEquals(10, first.getStats().getSize() + second.getStats().getSize());
+        assertEquals(6, first.getStats().getEvictionCount()
+                + second.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void testKeepsExpensiveEntries() throws IOException {
+        CacheBudget budget = new CacheBudget(4 * ENTRY_BYTES);
+        BudgetedCache slow = budget.newCache();
+        BudgetedCache fast = budget.newCache();
+        CountingLoader slowLoader = new CountingLoader(5);
+        CountingLoader fastLoader = new CountingLoader(0);
+
+        assertEquals(3, loads(slow, slowLoader, 0, 1, 2));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, loads(fast, fastLoader, i));
+        }
+        // The cheap values make room for each other
+        assertEquals(0, loads(slow, slowLoader, 0, 1, 2));
+        assertEquals(1, fast.getStats().getSize());
+    }
+
+    @Test
+    public void testRelease() throws IOException {
+        CacheBudget budget = new CacheBudget(10 * ENTRY_BYTES);
+        BudgetedCache first = budget.newCache();
+        BudgetedCache second = budget.newCache();
+        CountingLoader loader = new CountingLoader(0);
+
+        loads(first, loader, 1, 2, 3);
+        loads(second, loader, 1, 2);
+        first.release();
+        assertEquals(2 * ENTRY_BYTES, budget.getUsedBytes());
+        assertEquals(0, first.getUsedBytes());
+
+        // Released caches no longer cache
+        assertEquals(2, loads(first, loader, 1, 1));
+        for (int i = 10; i < 18; i++) {
+            loads(second, loader, i);
+        }
+        assertEquals(10 * ENTRY_BYTES, budget.getUsedBytes());
+        assertEquals(0, second.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void testReleaseDropsValues() throws IOException {
+        CacheBudget budget = new CacheBudget(10 * ENTRY_BYTES);
+        BudgetedCache first = budget.newCache();
+        BudgetedCache second = budget.newCache();
+        CountingLoader loader = new CountingLoader(0);
+
+        WeakReference<JsonElement> value = new WeakReference<>(first.get(1, loader));
+        loads(second, loader, 1);
+        first.release();
+
+        // The budget is no longer full, so nothing is evicted to clear the
+        // released entry off the clock
+        loads(second, loader, 2);
+        for (int i = 0; i < 10 && value.get() != null; i++) {
+            System.gc();
+        }
+        assertNull(value.get());
+    }
+
+    @Test
+    public void testTooLarge() throws IOException {
+        CacheBudget budget = new CacheBudget(ENTRY_BYTES - 1);
+        BudgetedCache cache = budget.newCache();
+        CountingLoader loader = new CountingLoader(0);
+
+        assertEquals(2, loads(cache, loader, 1, 1));
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(2, cache.getStats().getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveBudget() {
+        new CacheBudget(0);
+    }
+}
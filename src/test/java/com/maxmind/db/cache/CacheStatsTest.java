@@ -0,0 +1,116 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CacheStatsTest {
+
+    private static final NodeCache.Loader LOADER = new NodeCache.Loader() {
+        @Override
+        public JsonElement load(int key) {
+            return new JsonPrimitive(key);
+        }
+    };
+
+    private static CacheStats lookUp(InstrumentedCache cache, int... keys)
+            throws IOException {
+        for (int key : keys) {
+            cache.get(key, LOADER);
+        }
+        return cache.getStats();
+    }
+
+    @Test
+    public void testCHMCache() throws IOException {
+        CacheStats stats = lookUp(new CHMCache(2), 1, 2, 1, 3, 3);
+
+        // CHMCache stops adding entries once full, so 3 is never cached
+        assertEquals(1, stats.getHitCount());
+        assertEquals(4, stats.getMissCount());
+        assertEquals(4, stats.getLoadCount());
+        assertEquals(0, stats.getEvictionCount());
+        assertEquals(2, stats.getSize());
+        assertEquals(0.2, stats.getHitRate(), 1e-9);
+        assertTrue(stats.getTotalLoadTime() >= 0);
+    }
+
+    @Test
+    public void testBoundedCache() throws IOException {
+        CacheStats stats = lookUp(new BoundedCache(2), 1, 2, 1, 3, 3, 3);
+
+        assertEquals(1, stats.getHitCount());
+        assertEquals(5, stats.getMissCount());
+        assertEquals(5, stats.getLoadCount());
+        assertEquals(1, stats.getEvictionCount());
+        assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void testIntKeyCache() throws IOException {
+        IntKeyCache cache = new IntKeyCache(1);
+        for (int i = 0; i < 20; i++) {
+            cache.get(i, LOADER);
+        }
+        CacheStats stats = lookUp(cache, 19);
+
+        assertEquals(1, stats.getHitCount());
+        assertEquals(20, stats.getMissCount());
+        assertEquals(20, stats.getLoadCount());
+        assertEquals(20, stats.getSize() + stats.getEvictionCount());
+    }
+
+    @Test
+    public void testFailedLoads() throws IOException {
+        CHMCache cache = new CHMCache();
+        try {
+            cache.get(1, new NodeCache.Loader() {
+                @Override
+                public JsonElement load(int key) throws IOException {
+                    throw new IOException("failed");
+                }
+            });
+        } catch (IOException expected) {
+            // expected
+        }
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getLoadCount());
+        assertEquals(0, stats.getSize());
+    }
+
+    @Test
+    public void testConcurrentCountsAreExact() throws Exception {
+        final BoundedCache cache = new BoundedCache(2);
+        lookUp(cache, 1);
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        cache.getIfPresent(1);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800000, cache.getStats().getHitCount());
+    }
+
+    @Test
+    public void testEmpty() {
+        CacheStats stats = NoCache.getInstance().getStats();
+        assertEquals(1.0, stats.getHitRate(), 0);
+        assertEquals(0.0, stats.getAverageLoadPenalty(), 0);
+    }
+}
@@ -0,0 +1,68 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class IntKeyCacheTest {
+
+    private static final class CountingLoader implements NodeCache.Loader {
+        int loads;
+
+        @Override
+        public JsonElement load(int key) {
+            this.loads++;
+            return new JsonPrimitive(key);
+        }
+    }
+
+    @Test
+    public void testHits() throws IOException {
+        IntKeyCache cache = new IntKeyCache(100);
+        CountingLoader loader = new CountingLoader();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 7, cache.get(i * 7, loader).getAsInt());
+        }
+        assertEquals(100, loader.loads);
+        for (int i = 0; i < 100; i++) {
+            JsonElement value = cache.get(i * 7, loader);
+            assertEquals(i * 7, value.getAsInt());
+            assertSame(value, cache.get(i * 7, loader));
+        }
+        assertEquals(100, loader.loads);
+    }
+
+    @Test
+    public void testGetIfPresent() throws IOException {
+        IntKeyCache cache = new IntKeyCache(100);
+        CountingLoader loader = new CountingLoader();
+
+        assertNull(cache.getIfPresent(7));
+        JsonElement value = cache.get(7, loader);
+        assertSame(value, cache.getIfPresent(7));
+        assertNull(cache.getIfPresent(14));
+        assertEquals(1, loader.loads);
+        assertEquals(1, cache.getStats().getHitCount());
+        assertEquals(1, cache.getStats().getMissCount());
+    }
+
+    @Test
+    public void testReplacesWhenFull() throws IOException {
+        IntKeyCache cache = new IntKeyCache(1);
+        CountingLoader loader = new CountingLoader();
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, cache.get(i, loader).getAsInt());
+        }
+        // The most recent key has always replaced an older one
+        cache.get(999, loader);
+        assertEquals(1000, loader.loads);
+    }
+}
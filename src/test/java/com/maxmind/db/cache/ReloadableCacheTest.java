@@ -0,0 +1,60 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ReloadableCacheTest {
+
+    private static final NodeCache.Loader LOADER = new NodeCache.Loader() {
+        @Override
+        public JsonElement load(int key) {
+            return new JsonPrimitive(key);
+        }
+    };
+
+    private static ReloadableCache newCache() {
+        return new ReloadableCache(new ReloadableCache.Factory() {
+            @Override
+            public NodeCache newCache() {
+                return new CHMCache();
+            }
+        });
+    }
+
+    @Test
+    public void testSameDatabaseKeepsCache() throws IOException {
+        ReloadableCache cache = newCache();
+        NodeCache first = cache.forDatabase("GeoIP2-City/1000/42/abc");
+        first.get(1, LOADER);
+
+        assertSame(first, cache.forDatabase("GeoIP2-City/1000/42/abc"));
+        assertEquals(1, cache.getStats().getSize());
+    }
+
+    @Test
+    public void testNewDatabaseGetsNewCache() throws IOException {
+        ReloadableCache cache = newCache();
+        NodeCache first = cache.forDatabase("GeoIP2-City/1000/42/abc");
+        first.get(1, LOADER);
+
+        NodeCache second = cache.forDatabase("GeoIP2-City/2000/42/def");
+        assertNotSame(first, second);
+        assertEquals(0, cache.getStats().getSize());
+
+        // The old cache stays usable for readers of the old database
+        first.get(2, LOADER);
+        assertEquals(2, ((CHMCache) first).getStats().getSize());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoDatabase() throws IOException {
+        newCache().get(1, LOADER);
+    }
+}
@@ -0,0 +1,142 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightCacheTest {
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        final SingleFlightCache cache = new SingleFlightCache(NoCache.getInstance());
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final JsonElement value = new JsonPrimitive("value");
+        final NodeCache.Loader loader = new NodeCache.Loader() {
+            @Override
+            public JsonElement load(int key) throws IOException {
+                loads.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return value;
+            }
+        };
+
+        int threads = 8;
+        List<Thread> waiting = new ArrayList<>();
+        final List<JsonElement> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        JsonElement result = cache.get(42, loader);
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            thread.start();
+            waiting.add(thread);
+        }
+
+        // Wait until one thread is loading and the others are blocked on it
+        for (Thread thread : waiting) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        }
+        release.countDown();
+        for (Thread thread : waiting) {
+            thread.join();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(threads, results.size());
+        for (JsonElement result : results) {
+            assertSame(value, result);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testNestedLoadsDoNotDeadlock() throws Exception {
+        final SingleFlightCache cache = new SingleFlightCache(new CHMCache());
+        final CyclicBarrier bothLoading = new CyclicBarrier(2);
+        final NodeCache.Loader leaf = new NodeCache.Loader() {
+            @Override
+            public JsonElement load(int key) {
+                return new JsonPrimitive(key);
+            }
+        };
+        // Loading 1 needs 2 and loading 2 needs 1, as with two values that
+        // point to each other.
+        final NodeCache.Loader loader = new NodeCache.Loader() {
+            @Override
+            public JsonElement load(int key) throws IOException {
+                try {
+                    bothLoading.await();
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+                cache.get(3 - key, leaf);
+                return new JsonPrimitive(key);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<JsonElement>> results = new ArrayList<>();
+            for (final int key : new int[]{1, 2}) {
+                results.add(executor.submit(new Callable<JsonElement>() {
+                    @Override
+                    public JsonElement call() throws IOException {
+                        return cache.get(key, loader);
+                    }
+                }));
+            }
+            assertEquals(1, results.get(0).get(5, TimeUnit.SECONDS).getAsInt());
+            assertEquals(2, results.get(1).get(5, TimeUnit.SECONDS).getAsInt());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailedLoad() throws IOException {
+        new SingleFlightCache(new CHMCache()).get(1, new NodeCache.Loader() {
+            @Override
+            public JsonElement load(int key) throws IOException {
+                throw new IOException("failed");
+            }
+        });
+    }
+
+    @Test
+    public void testCanPinIfWrappedCacheCan() {
+        assertFalse(new SingleFlightCache(new CHMCache()).canPin());
+        assertTrue(new SingleFlightCache(new BoundedCache()).canPin());
+    }
+}
@@ -0,0 +1,101 @@
+package com.maxmind.db.cache;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TieredCacheTest {
+
+    private static final NodeCache.Loader LOADER = new NodeCache.Loader() {
+        @Override
+        public JsonElement load(int key) {
+            return new JsonPrimitive(key);
+        }
+    };
+
+    private static final class CountingCache implements NodeCache {
+        private final NodeCache cache = new CHMCache();
+        int lookups;
+
+        @Override
+        public JsonElement get(int key, Loader loader) throws IOException {
+            this.lookups++;
+            return this.cache.get(key, loader);
+        }
+    }
+
+    @Test
+    public void testFirstLevelHits() throws IOException {
+        CountingCache shared = new CountingCache();
+        TieredCache cache = new TieredCache(shared, 1, 1024);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, cache.get(i, LOADER).getAsInt());
+        }
+        assertEquals(10, shared.lookups);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, cache.get(i, LOADER).getAsInt());
+        }
+        assertEquals(10, shared.lookups);
+    }
+
+    @Test
+    public void testGetIfPresent() throws IOException {
+        CHMCache shared = new CHMCache();
+        TieredCache cache = new TieredCache(shared, 1, 1024);
+
+        assertNull(cache.getIfPresent(1));
+        shared.get(1, LOADER);
+        assertEquals(1, cache.getIfPresent(1).getAsInt());
+        assertEquals(1, cache.getIfPresent(1).getAsInt());
+        // Found in the shared cache once, and then in the first level
+        assertEquals(1, shared.getStats().getHitCount());
+        assertEquals(2, cache.getStats().getHitCount());
+        assertEquals(1, cache.getStats().getMissCount());
+
+        // The shared cache cannot be looked in without loading
+        TieredCache unpeekable = new TieredCache(new CountingCache(), 1, 1024);
+        assertNull(unpeekable.getIfPresent(1));
+    }
+
+    @Test
+    public void testCollisions() throws IOException {
+        CountingCache shared = new CountingCache();
+        TieredCache cache = new TieredCache(shared, 1, 2);
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, cache.get(i, LOADER).getAsInt());
+            }
+        }
+        assertEquals(300, shared.lookups + cache.getStats().getHitCount());
+    }
+
+    @Test
+    public void testStats() throws IOException {
+        TieredCache cache = new TieredCache(new CHMCache(), 1, 16);
+        cache.get(1, LOADER);
+        cache.get(1, LOADER);
+        cache.get(2, LOADER);
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(2, stats.getLoadCount());
+        assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void testCanPinIfSharedCacheCan() {
+        assertFalse(new TieredCache(new CHMCache()).canPin());
+        assertTrue(new TieredCache(new BoundedCache()).canPin());
+        assertFalse(new TieredCache(new TieredCache(new CHMCache())).canPin());
+    }
+}
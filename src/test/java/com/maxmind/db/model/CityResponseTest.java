@@ -0,0 +1,94 @@
+package com.maxmind.db.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CityResponseTest {
+
+    @Test
+    public void testCityResponse() throws Exception {
+        JsonElement json = readFile("/city-response.json");
+        CityResponse cityResponse = CityResponse.of(json);
+
+        City city = cityResponse.getCity();
+        assertThat(city.getName(), is("Linköping"));
+        assertThat(city.getGeoNameId(), is(2694762));
+
+        assertThat(cityResponse.getContinent().getCode(), is("EU"));
+        assertThat(cityResponse.getCountry().getIsoCode(), is("SE"));
+
+        Location location = cityResponse.getLocation();
+        assertThat(location.getLatitude(), is(58.4167));
+        assertThat(location.getLongitude(), is(15.6167));
+        assertThat(location.getAccuracyRadius(), is(76));
+        assertThat(location.getTimeZone(), is("Europe/Stockholm"));
+
+        assertThat(cityResponse.getPostal().getCode(), is("582 14"));
+
+        assertThat(cityResponse.getSubdivisions().size(), is(1));
+        Subdivision subdivision = cityResponse.getSubdivisions().get(0);
+        assertThat(subdivision.getIsoCode(), is("E"));
+        assertThat(subdivision.getName(), is("Östergötland County"));
+        assertThat(subdivision.getGeoNameId(), is(2685867));
+    }
+
+    @Test
+    public void testLocales() throws Exception {
+        JsonElement json = readFile("/city-response.json");
+        CityResponse cityResponse = CityResponse.of(json, Arrays.asList("ja", "fr"));
+
+        assertThat(cityResponse.getCity().getName(), is("リンシェーピング"));
+        assertThat(cityResponse.getCountry().getName(), is("Suède"));
+        assertThat(cityResponse.getSubdivisions().get(0).getName(), is("Comté d'Östergötland"));
+
+        cityResponse = CityResponse.of(json, Arrays.asList("ru"));
+        assertNull(cityResponse.getCity().getName());
+    }
+
+    @Test
+    public void testMissingRecords() throws Exception {
+        JsonObject json = new JsonObject();
+        json.add("country", readFile("/country.json"));
+        CityResponse cityResponse = CityResponse.of(json);
+
+        assertThat(cityResponse.getCountry().getIsoCode(), is("SE"));
+        assertNull(cityResponse.getCity());
+        assertNull(cityResponse.getContinent());
+        assertNull(cityResponse.getLocation());
+        assertNull(cityResponse.getPostal());
+        assertTrue(cityResponse.getSubdivisions().isEmpty());
+    }
+
+    @Test
+    public void testAsnResponse() throws Exception {
+        AsnResponse asnResponse = AsnResponse.of(readFile("/asn-response.json"));
+
+        assertThat(asnResponse.getAutonomousSystemNumber(), is(1221L));
+        assertThat(asnResponse.getAutonomousSystemOrganization(), is("Telstra Pty Ltd"));
+    }
+
+    private JsonElement readFile(String s) throws URISyntaxException, IOException {
+        Path path = Paths.get(getClass().getResource(s).toURI());
+        BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+
+        return new Gson().fromJson(reader, JsonElement.class);
+    }
+}
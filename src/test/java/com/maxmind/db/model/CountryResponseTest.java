@@ -2,6 +2,7 @@ package com.maxmind.db.model;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -10,10 +11,13 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.Test;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 
 import static org.junit.Assert.assertThat;
 
@@ -59,6 +63,38 @@ public class CountryResponseTest {
         assertThat(continent.getName(), is("Europe"));
     }
 
+    @Test
+    public void testPartialRecords() {
+        JsonElement json = new JsonParser().parse(
+                "{\"country\": {\"iso_code\": \"SE\"}, \"continent\": {\"geoname_id\": 6255148}}");
+        CountryResponse countryResponse = CountryResponse.of(json);
+
+        Country country = countryResponse.getCountry();
+        assertThat(country.getIsoCode(), is("SE"));
+        assertThat(country.getGeoNameId(), is(nullValue()));
+        assertThat(country.getName(), is(nullValue()));
+
+        Continent continent = countryResponse.getContinent();
+        assertThat(continent.getCode(), is(nullValue()));
+        assertThat(continent.getGeoNameId(), is(6255148));
+
+        countryResponse = CountryResponse.of(new JsonParser().parse("{}"));
+        assertThat(countryResponse.getCountry(), is(nullValue()));
+        assertThat(countryResponse.getContinent(), is(nullValue()));
+    }
+
+    @Test
+    public void testRecordsWithoutGeoNameId() {
+        Country country = Country.of(new JsonParser().parse("{\"iso_code\": \"SE\"}"));
+        Continent continent = Continent.of(new JsonParser().parse("{\"code\": \"EU\"}"));
+
+        Set<AbstractRecord> records = new HashSet<>();
+        records.add(country);
+        records.add(continent);
+        assertThat(records.contains(country), is(true));
+        assertThat(country.hashCode(), is(continent.hashCode()));
+    }
+
     private JsonElement readFile(String s) throws URISyntaxException, IOException {
         Path stevePath = Paths.get(getClass().getResource(s).toURI());
         BufferedReader reader = Files.newBufferedReader(stevePath, StandardCharsets.UTF_8);